@@ -0,0 +1,199 @@
+package com.lewin.luxanaipark.alert;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lewin.commons.exception.LewinException;
+import com.lewin.luxanaipark.config.AlertProperties;
+import com.lewin.luxanaipark.config.BizProperties;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 告警批量推送.
+ * <p>
+ * 告警先进入有界队列, 产生方(客流分发线程)只做非阻塞入队, 队列满时丢弃并计数. 凑批线程攒满
+ * {@link AlertProperties#getBatchSize()} 条或等待超过 {@link AlertProperties#getLinger()} 后交给推送线程,
+ * 同时进行的推送不超过 {@link AlertProperties#getMaxConcurrent()} 批, 推送失败按间隔翻倍重试.
+ * 推送方达到并发上限时凑批线程等待, 期间的告警留在队列中.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class AlertDispatcher implements DisposableBean {
+
+    static final TypeReference<List<AlertEvent>> BATCH_TYPE = new TypeReference<>() {
+    };
+
+    private final AlertProperties properties;
+    private final AlertPublisher publisher;
+    private final BlockingQueue<AlertEvent> queue;
+    private final Semaphore permits;
+    private final ExecutorService sender;
+    private final Thread batcher;
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private volatile boolean running = true;
+
+    @Autowired
+    public AlertDispatcher(BizProperties bizProperties, ObjectMapper objectMapper) {
+        this(bizProperties.getAlert(), createPublisher(bizProperties.getAlert(), objectMapper));
+    }
+
+    AlertDispatcher(AlertProperties properties, AlertPublisher publisher) {
+        this.properties = properties;
+        this.publisher = publisher;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        var maxConcurrent = Math.max(1, properties.getMaxConcurrent());
+        this.permits = new Semaphore(maxConcurrent);
+        this.sender = Executors.newFixedThreadPool(maxConcurrent, new DefaultThreadFactory("alert-sender", true));
+        this.batcher = new Thread(this::batch, "alert-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+
+    private static AlertPublisher createPublisher(AlertProperties properties, ObjectMapper objectMapper) {
+        return switch (properties.getPublisher()) {
+            case log -> new LogAlertPublisher();
+            case file -> new FileAlertPublisher(Path.of(properties.getFile()), objectMapper);
+            case webhook -> {
+                if (ObjectUtils.isEmpty(properties.getWebhookUrl())) {
+                    throw new LewinException("告警推送方式为 webhook, 但未配置 webhook-url");
+                }
+                yield new WebhookAlertPublisher(URI.create(properties.getWebhookUrl()),
+                        properties.getRequestTimeout(), objectMapper);
+            }
+        };
+    }
+
+    /**
+     * 提交告警, 不阻塞
+     *
+     * @return 队列已满时返回 false
+     */
+    public boolean offer(AlertEvent event) {
+        offered.increment();
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        log.warn("告警队列已满, 丢弃告警: {}", event);
+        return false;
+    }
+
+    public AlertStats stats() {
+        var inFlight = Math.max(1, properties.getMaxConcurrent()) - permits.availablePermits();
+        return new AlertStats(offered.sum(), dropped.sum(), batches.sum(), delivered.sum(),
+                failed.sum(), retries.sum(), queue.size(), inFlight);
+    }
+
+    private void batch() {
+        var batchSize = Math.max(1, properties.getBatchSize());
+        var lingerNanos = properties.getLinger().toNanos();
+        while (running) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                var batch = new ArrayList<AlertEvent>(Math.min(batchSize, 16));
+                batch.add(first);
+                var deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    var remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                permits.acquire();
+                try {
+                    sender.execute(() -> send(batch));
+                } catch (Throwable t) {
+                    permits.release();
+                    throw t;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                log.error("告警凑批异常: {}", t.getMessage(), t);
+            }
+        }
+    }
+
+    private void send(List<AlertEvent> batch) {
+        try {
+            var delay = properties.getRetryDelay().toMillis();
+            for (var attempt = 0; ; attempt++) {
+                try {
+                    publisher.publish(batch);
+                    batches.increment();
+                    delivered.add(batch.size());
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.add(batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= properties.getRetries() || !running) {
+                        failed.add(batch.size());
+                        log.error("告警推送失败, 放弃 {} 条告警: {}", batch.size(), e.getMessage());
+                        return;
+                    }
+                    retries.increment();
+                    log.warn("告警推送失败, {}ms 后第 {} 次重试: {}", delay, attempt + 1, e.getMessage());
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                    delay *= 2;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.add(batch.size());
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        batcher.interrupt();
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(properties.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sender.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
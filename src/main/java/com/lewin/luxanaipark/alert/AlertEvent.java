@@ -0,0 +1,28 @@
+package com.lewin.luxanaipark.alert;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * 场景告警事件, 序列化时以 type 字段区分类型
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = CrowdLevelAlert.class, name = "crowd-level-changed"),
+        @JsonSubTypes.Type(value = CapacityExceededAlert.class, name = "capacity-exceeded")
+})
+public sealed interface AlertEvent permits CrowdLevelAlert, CapacityExceededAlert {
+
+    /**
+     * @return 场景名称
+     */
+    String scene();
+
+    /**
+     * @return 事件时间戳(毫秒)
+     */
+    long timestamp();
+}
@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.alert;
+
+import java.util.List;
+
+/**
+ * 告警推送, 由 {@link AlertDispatcher} 在推送线程中批量调用
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public interface AlertPublisher {
+
+    /**
+     * 推送一批告警, 抛出异常视为失败并按配置重试
+     *
+     * @param batch 按产生顺序排列的告警
+     */
+    void publish(List<AlertEvent> batch) throws Exception;
+}
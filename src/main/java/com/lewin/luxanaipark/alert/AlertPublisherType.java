@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.alert;
+
+/**
+ * 告警推送方式
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum AlertPublisherType {
+
+    /** 仅写入应用日志 */
+    log,
+
+    /** HTTP POST 到 webhook */
+    webhook,
+
+    /** 追加到本地文件 */
+    file
+}
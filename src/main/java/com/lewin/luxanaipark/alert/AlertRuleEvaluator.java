@@ -0,0 +1,65 @@
+package com.lewin.luxanaipark.alert;
+
+import com.lewin.luxanaipark.config.AlertProperties;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.occupancy.OccupancyEngine;
+import com.lewin.luxanaipark.occupancy.OccupancyListener;
+import com.lewin.luxanaipark.occupancy.SceneOccupancy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 告警规则, 只在场景进出总数变化时评估.
+ * <ul>
+ *     <li>拥挤程度变化时产生 {@link CrowdLevelAlert}, 程度本身已由 {@link OccupancyEngine} 做滞回</li>
+ *     <li>进出差值超过容量时产生一次 {@link CapacityExceededAlert}, 回落到容量 x (1 - 滞回比例) 以下后才会再次触发</li>
+ * </ul>
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Component
+public class AlertRuleEvaluator implements OccupancyListener {
+
+    private final Map<String, Boolean> exceeded = new ConcurrentHashMap<>();
+    private final AlertProperties properties;
+    private final AlertDispatcher dispatcher;
+
+    public AlertRuleEvaluator(BizProperties bizProperties, OccupancyEngine occupancyEngine, AlertDispatcher dispatcher) {
+        this.properties = bizProperties.getAlert();
+        this.dispatcher = dispatcher;
+        for (var occupancy : occupancyEngine.all()) {
+            if (occupancy.capacity() != null && raw(occupancy) > occupancy.capacity()) {
+                exceeded.put(occupancy.name(), Boolean.TRUE);
+            }
+        }
+        occupancyEngine.addListener(this);
+    }
+
+    @Override
+    public void onOccupancy(SceneOccupancy previous, SceneOccupancy current) {
+        if (previous.level() != current.level()) {
+            dispatcher.offer(new CrowdLevelAlert(current.name(), previous.level(), current.level(),
+                    current.occupancy(), current.capacity(), current.updatedAt()));
+        }
+
+        var capacity = current.capacity();
+        if (capacity == null || capacity <= 0) {
+            return;
+        }
+        var raw = raw(current);
+        if (raw > capacity) {
+            if (exceeded.put(current.name(), Boolean.TRUE) == null) {
+                dispatcher.offer(new CapacityExceededAlert(current.name(), raw, capacity, current.updatedAt()));
+            }
+        } else if (raw < capacity * (1 - properties.getCapacityHysteresisRatio())) {
+            exceeded.remove(current.name());
+        }
+    }
+
+    private static long raw(SceneOccupancy occupancy) {
+        return occupancy.in() - occupancy.out();
+    }
+}
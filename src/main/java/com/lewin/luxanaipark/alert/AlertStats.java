@@ -0,0 +1,25 @@
+package com.lewin.luxanaipark.alert;
+
+/**
+ * 告警推送指标
+ *
+ * @param offered   累计产生的告警数
+ * @param dropped   队列已满被丢弃的告警数
+ * @param batches   累计推送成功的批次数
+ * @param delivered 累计推送成功的告警数
+ * @param failed    重试耗尽后放弃的告警数
+ * @param retries   累计重试次数
+ * @param pending   队列中待推送的告警数
+ * @param inFlight  正在推送的批次数
+ * @author Jun
+ * @since 1.0.0
+ */
+public record AlertStats(long offered,
+                         long dropped,
+                         long batches,
+                         long delivered,
+                         long failed,
+                         long retries,
+                         int pending,
+                         int inFlight) {
+}
@@ -0,0 +1,14 @@
+package com.lewin.luxanaipark.alert;
+
+/**
+ * 场景在场人数超过容量, 人数回落到容量以下(含滞回)之前不会重复触发
+ *
+ * @param scene     场景名称
+ * @param occupancy 未截断的在场人数(进 - 出)
+ * @param capacity  场景容量
+ * @param timestamp 事件时间戳(毫秒)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record CapacityExceededAlert(String scene, long occupancy, int capacity, long timestamp) implements AlertEvent {
+}
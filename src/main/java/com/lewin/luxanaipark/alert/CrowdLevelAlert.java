@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.alert;
+
+import com.lewin.luxanaipark.occupancy.CrowdLevel;
+
+/**
+ * 拥挤程度变化
+ *
+ * @param scene     场景名称
+ * @param previous  变化前的程度
+ * @param level     变化后的程度
+ * @param occupancy 在场人数
+ * @param capacity  场景容量, 未配置时为 null
+ * @param timestamp 事件时间戳(毫秒)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record CrowdLevelAlert(String scene,
+                              CrowdLevel previous,
+                              CrowdLevel level,
+                              long occupancy,
+                              Integer capacity,
+                              long timestamp) implements AlertEvent {
+}
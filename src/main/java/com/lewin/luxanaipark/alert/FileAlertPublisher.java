@@ -0,0 +1,36 @@
+package com.lewin.luxanaipark.alert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 追加到本地文件, 每批一行 JSON 数组
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public class FileAlertPublisher implements AlertPublisher {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileAlertPublisher(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<AlertEvent> batch) throws IOException {
+        var parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        var line = objectMapper.writerFor(AlertDispatcher.BATCH_TYPE).writeValueAsString(batch) + System.lineSeparator();
+        Files.writeString(path, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,22 @@
+package com.lewin.luxanaipark.alert;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * 写入应用日志
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public class LogAlertPublisher implements AlertPublisher {
+
+    @Override
+    public void publish(List<AlertEvent> batch) {
+        for (var event : batch) {
+            log.warn("场景告警: {}", event);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.lewin.luxanaipark.alert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 以 JSON 数组 POST 到 webhook, 非 2xx 响应视为失败
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public class WebhookAlertPublisher implements AlertPublisher {
+
+    private final URI uri;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public WebhookAlertPublisher(URI uri, Duration timeout, ObjectMapper objectMapper) {
+        this.uri = uri;
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void publish(List<AlertEvent> batch) throws IOException, InterruptedException {
+        var body = objectMapper.writerFor(AlertDispatcher.BATCH_TYPE).writeValueAsBytes(batch);
+        var request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("webhook 响应状态码: " + response.statusCode());
+        }
+    }
+}
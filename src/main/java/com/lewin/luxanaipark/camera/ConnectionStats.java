@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.camera;
+
+/**
+ * 神目相机连接指标
+ *
+ * @param ioThreads        共享 event loop 线程数
+ * @param connections      连接总数
+ * @param active           当前在线连接数
+ * @param attempts         累计连接尝试次数
+ * @param failures         累计连接失败次数
+ * @param avgConnectMillis 成功连接的平均耗时, 毫秒
+ * @param maxConnectMillis 成功连接的最大耗时, 毫秒
+ * @author Jun
+ * @since 1.0.0
+ */
+public record ConnectionStats(int ioThreads,
+                              int connections,
+                              int active,
+                              long attempts,
+                              long failures,
+                              long avgConnectMillis,
+                              long maxConnectMillis) {
+}
@@ -0,0 +1,144 @@
+package com.lewin.luxanaipark.camera;
+
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.handler.DeepcamAction;
+import com.lewin.luxanaipark.handler.DeepcamCommandTable;
+import com.lewin.net.RemoteServerProperties;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 神目相机长连接, 运行在 {@link DeepcamConnectionManager} 的共享 event loop 上, 断线后自动重连.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public class DeepcamConnection {
+
+    private final CameraInfo cameraInfo;
+    private final RemoteServerProperties config;
+    private final Bootstrap bootstrap;
+    private final DeepcamConnectionManager manager;
+    private final long reconnectDelayMillis;
+    private volatile Channel channel;
+    private volatile boolean shutdown;
+
+    DeepcamConnection(CameraInfo cameraInfo,
+                      RemoteServerProperties config,
+                      Bootstrap bootstrap,
+                      DeepcamConnectionManager manager,
+                      long reconnectDelayMillis) {
+        this.cameraInfo = cameraInfo;
+        this.config = config;
+        this.bootstrap = bootstrap;
+        this.manager = manager;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    public CameraInfo cameraInfo() {
+        return cameraInfo;
+    }
+
+    public RemoteServerProperties config() {
+        return config;
+    }
+
+    public boolean isActive() {
+        var ch = channel;
+        return ch != null && ch.isActive();
+    }
+
+    /**
+     * 写出数据, 连接不可用时释放数据
+     *
+     * @return 数据是否已提交写出
+     */
+    public boolean writeAndFlush(Object msg) {
+        var ch = channel;
+        if (ch == null || !ch.isActive()) {
+            ReferenceCountUtil.release(msg);
+            return false;
+        }
+        ch.writeAndFlush(msg);
+        return true;
+    }
+
+    /**
+     * 发送指令并异步等待对应响应, 同一连接可同时存在多个在途指令
+     *
+     * @param action  期望的响应类型
+     * @param command 指令报文, 连接不可用时释放
+     * @param timeout 响应超时, 超时后断开连接
+     * @return 响应中的 ret 文本
+     */
+    public CompletableFuture<String> request(DeepcamAction action, ByteBuf command, Duration timeout) {
+        var ch = channel;
+        if (ch == null || !ch.isActive()) {
+            command.release();
+            return CompletableFuture.failedFuture(new ClosedChannelException());
+        }
+        return ch.attr(DeepcamCommandTable.KEY).get().request(action, command, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 断开当前连接, 稍后自动重连
+     */
+    public void close() {
+        var ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    void connect() {
+        if (shutdown) {
+            return;
+        }
+
+        var start = System.nanoTime();
+        bootstrap.connect(config.getHost(), config.getPort()).addListener((ChannelFuture f) -> {
+            var elapsed = System.nanoTime() - start;
+            if (!f.isSuccess()) {
+                manager.onConnect(false, elapsed);
+                log.warn("连接[{}]失败: {}, {}ms 后重连", cameraInfo.key(), f.cause().getMessage(), reconnectDelayMillis);
+                scheduleReconnect();
+                return;
+            }
+
+            manager.onConnect(true, elapsed);
+            channel = f.channel();
+            manager.onOnlineChanged(cameraInfo.key(), true);
+            f.channel().closeFuture().addListener(cf -> {
+                log.info("连接[{}]断开", cameraInfo.key());
+                manager.onOnlineChanged(cameraInfo.key(), false);
+                f.channel().attr(DeepcamCommandTable.KEY).get().failAll();
+                scheduleReconnect();
+            });
+            if (shutdown) {
+                f.channel().close();
+            }
+        });
+    }
+
+    void shutdown() {
+        shutdown = true;
+        close();
+    }
+
+    private void scheduleReconnect() {
+        if (shutdown) {
+            return;
+        }
+        bootstrap.config().group().schedule(this::connect, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,155 @@
+package com.lewin.luxanaipark.camera;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.DeepcamProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.handler.DeepcamCommandTable;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import com.lewin.luxanaipark.device.DeviceOnlineChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 神目相机连接管理.
+ * <p>
+ * 所有相机连接共享同一个按相机数量确定大小的 {@link EventLoopGroup}, 启动时首次连接在配置的时间窗口内均匀错开.
+ * 指令超时统一由一个共享的 {@link HashedWheelTimer} 驱动.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class DeepcamConnectionManager implements DisposableBean {
+
+    private final DeepcamProperties properties;
+    private final EventLoopGroup group;
+    private final Timer timer = new HashedWheelTimer(new DefaultThreadFactory("deepcam-timer", true), 100, TimeUnit.MILLISECONDS);
+    private final int ioThreads;
+    private final List<DeepcamConnection> connections = new CopyOnWriteArrayList<>();
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder connectNanos = new LongAdder();
+    private final LongAccumulator maxConnectNanos = new LongAccumulator(Long::max, 0);
+
+    public DeepcamConnectionManager(BizProperties bizProperties, ApplicationEventPublisher eventPublisher) {
+        this.properties = bizProperties.getDeepcam();
+        this.eventPublisher = eventPublisher;
+
+        var cameraCount = bizProperties.getSceneList().stream()
+                .filter(t -> t.getCameraInfoList() != null)
+                .flatMap(t -> t.getCameraInfoList().stream())
+                .filter(t -> CameraTypeEnum.deepcam == t.getType())
+                .count();
+        var threads = properties.getIoThreads();
+        if (threads <= 0) {
+            var perThread = Math.max(1, properties.getCamerasPerThread());
+            threads = (int) Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, (cameraCount + perThread - 1) / perThread));
+        }
+        this.ioThreads = threads;
+        this.group = new NioEventLoopGroup(threads, new DefaultThreadFactory("deepcam-io", true));
+        log.info("神目相机[{}]台, 共享 io 线程[{}]个", cameraCount, threads);
+    }
+
+    /**
+     * 创建相机连接, 调用 {@link #start()} 后才会发起连接
+     *
+     * @param cameraInfo  相机信息
+     * @param initializer channel pipeline 初始化
+     */
+    public DeepcamConnection create(CameraInfo cameraInfo, Consumer<Channel> initializer) {
+        var bootstrap = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.attr(DeepcamCommandTable.KEY).set(new DeepcamCommandTable(ch, timer));
+                        initializer.accept(ch);
+                    }
+                });
+        var connection = new DeepcamConnection(cameraInfo, cameraInfo.transferTo(), bootstrap, this,
+                properties.getReconnectDelay().toMillis());
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * 在连接窗口内均匀错开发起所有首次连接
+     */
+    public void start() {
+        var n = connections.size();
+        if (n == 0) {
+            return;
+        }
+
+        var windowMillis = properties.getConnectWindow().toMillis();
+        for (int i = 0; i < n; i++) {
+            var connection = connections.get(i);
+            var delay = windowMillis * i / n;
+            group.schedule(connection::connect, delay, TimeUnit.MILLISECONDS);
+        }
+        log.info("[{}]个神目相机连接将在[{}]ms 内依次发起", n, windowMillis);
+    }
+
+    void onConnect(boolean success, long elapsedNanos) {
+        attempts.increment();
+        if (success) {
+            connectNanos.add(elapsedNanos);
+            maxConnectNanos.accumulate(elapsedNanos);
+        } else {
+            failures.increment();
+        }
+    }
+
+    /**
+     * 连接建立或断开, 发布 {@link DeviceOnlineChangedEvent}
+     */
+    void onOnlineChanged(String key, boolean online) {
+        eventPublisher.publishEvent(new DeviceOnlineChangedEvent(key, online));
+    }
+
+    public ConnectionStats stats() {
+        var succeeded = attempts.sum() - failures.sum();
+        return new ConnectionStats(
+                ioThreads,
+                connections.size(),
+                (int) connections.stream().filter(DeepcamConnection::isActive).count(),
+                attempts.sum(),
+                failures.sum(),
+                succeeded <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(connectNanos.sum() / succeeded),
+                TimeUnit.NANOSECONDS.toMillis(maxConnectNanos.get())
+        );
+    }
+
+    @Override
+    public void destroy() {
+        connections.forEach(DeepcamConnection::shutdown);
+        group.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+        timer.stop();
+    }
+}
@@ -2,14 +2,17 @@ package com.lewin.luxanaipark.camera;
 
 import com.lewin.commons.exception.LewinException;
 import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.DeepcamProperties;
 import com.lewin.luxanaipark.constants.CameraTypeEnum;
 import com.lewin.luxanaipark.entity.CameraInfo;
 import com.lewin.luxanaipark.entity.Scene;
 import com.lewin.luxanaipark.handler.PassengerFlowHandler;
-import com.lewin.net.NetClient;
+import com.lewin.luxanaipark.traffic.SceneReadTracker;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
 import io.netty.handler.codec.json.JsonObjectDecoder;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 
@@ -17,6 +20,7 @@ import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 客流统计相机初始化对象
@@ -26,13 +30,25 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Component
+@DependsOn("trafficWal")
 public class PassengerFlowInitializer {
 
     private final List<Scene> sceneList;
-    public static final Map<String, NetClient> NET_CLIENT_MAP = new ConcurrentHashMap<>();
+    private final TrafficRegistry trafficRegistry;
+    private final DeepcamConnectionManager connectionManager;
+    private final SceneReadTracker sceneReadTracker;
+    private final DeepcamProperties deepcamProperties;
+    public static final Map<String, DeepcamConnection> NET_CLIENT_MAP = new ConcurrentHashMap<>();
 
-    public PassengerFlowInitializer(BizProperties bizProperties) {
+    public PassengerFlowInitializer(BizProperties bizProperties,
+                                    TrafficRegistry trafficRegistry,
+                                    DeepcamConnectionManager connectionManager,
+                                    SceneReadTracker sceneReadTracker) {
         this.sceneList = bizProperties.getSceneList();
+        this.trafficRegistry = trafficRegistry;
+        this.connectionManager = connectionManager;
+        this.sceneReadTracker = sceneReadTracker;
+        this.deepcamProperties = bizProperties.getDeepcam();
 
         // scene name, camera name 唯一性检查
         long sceneNameCount = this.sceneList.stream().map(Scene::getName).count();
@@ -64,16 +80,18 @@ public class PassengerFlowInitializer {
                     continue;
                 }
 
-                var netClient = new NetClient(ch -> {
+                var connection = connectionManager.create(cameraInfo, ch -> {
                     var p = ch.pipeline();
-                    p.addLast(new IdleStateHandler(0,0,15));
+                    p.addLast(new IdleStateHandler(0, 0, deepcamProperties.getIdleTimeout().toSeconds(), TimeUnit.SECONDS));
                     p.addLast(new JsonObjectDecoder());
-                    p.addLast(new PassengerFlowHandler(scene.getName(), cameraInfo));
-                }, cameraInfo.transferTo());
-                netClient.start();
+                    p.addLast(new PassengerFlowHandler(trafficRegistry, sceneReadTracker, deepcamProperties, scene.getName(), cameraInfo));
+                });
 
-                NET_CLIENT_MAP.put(cameraInfo.key(), netClient);
+                NET_CLIENT_MAP.put(cameraInfo.key(), connection);
             }
         }
+
+        // 共享 event loop, 错峰发起连接
+        connectionManager.start();
     }
 }
@@ -0,0 +1,49 @@
+package com.lewin.luxanaipark.config;
+
+import com.lewin.luxanaipark.alert.AlertPublisherType;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 告警推送配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class AlertProperties {
+
+    /** 推送方式 */
+    private AlertPublisherType publisher = AlertPublisherType.log;
+
+    /** webhook 地址, publisher 为 webhook 时必填 */
+    private String webhookUrl;
+
+    /** 告警文件, publisher 为 file 时生效, 每行一批 JSON */
+    private String file = "logs/alert.log";
+
+    /** 待推送告警队列上限, 队列满时丢弃新告警 */
+    private int queueCapacity = 10000;
+
+    /** 单批最多告警数 */
+    private int batchSize = 100;
+
+    /** 凑批的最长等待时间 */
+    private Duration linger = Duration.ofMillis(500);
+
+    /** 同时进行的推送数上限 */
+    private int maxConcurrent = 2;
+
+    /** 推送失败后的重试次数 */
+    private int retries = 3;
+
+    /** 首次重试间隔, 之后每次翻倍 */
+    private Duration retryDelay = Duration.ofSeconds(1);
+
+    /** webhook 请求超时 */
+    private Duration requestTimeout = Duration.ofSeconds(5);
+
+    /** 超容量告警恢复的滞回比例, 人数低于容量 x (1 - 比例) 后才会再次告警 */
+    private double capacityHysteresisRatio = 0.05;
+}
@@ -21,4 +21,43 @@ public class BizProperties {
     private List<String> cronJobList;
 
     private String streamUrlPrefix;
+
+    /** 神目相机连接 */
+    private DeepcamProperties deepcam = new DeepcamProperties();
+
+    /** 海康设备登录 */
+    private HikLoginProperties hikLogin = new HikLoginProperties();
+
+    /** 海康设备状态 */
+    private DeviceStateProperties deviceState = new DeviceStateProperties();
+
+    /** 海康 ISAPI 透传 */
+    private IsapiProperties isapi = new IsapiProperties();
+
+    /** 定时客流清零 */
+    private ResetProperties reset = new ResetProperties();
+
+    /** 场景在场人数 */
+    private OccupancyProperties occupancy = new OccupancyProperties();
+
+    /** 拥挤告警推送 */
+    private AlertProperties alert = new AlertProperties();
+
+    /** 客流汇总 */
+    private RollupProperties rollup = new RollupProperties();
+
+    /** 客流持久化 */
+    private PersistenceProperties persistence = new PersistenceProperties();
+
+    /** 客流历史 */
+    private HistoryProperties history = new HistoryProperties();
+
+    /** 客流推送 */
+    private StreamProperties stream = new StreamProperties();
+
+    /** 海康报警回调事件管道 */
+    private PipelineProperties alarmPipeline = new PipelineProperties();
+
+    /** 海康设备状态回调事件管道 */
+    private PipelineProperties deviceStatePipeline = new PipelineProperties();
 }
@@ -0,0 +1,41 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 神目相机连接配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class DeepcamProperties {
+
+    /** 共享 event loop 线程数, 小于等于 0 时按相机数量自动计算 */
+    private int ioThreads = 0;
+
+    /** 每个 io 线程承载的相机数, 用于自动计算线程数 */
+    private int camerasPerThread = 200;
+
+    /** 启动时首次连接均匀分布的时间窗口, 避免连接风暴 */
+    private Duration connectWindow = Duration.ofSeconds(10);
+
+    private Duration connectTimeout = Duration.ofSeconds(3);
+
+    /** 断线重连间隔 */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+
+    /** 人数查询最短间隔, 计数变化或场景正被查看时使用 */
+    private Duration pollMinInterval = Duration.ofMillis(500);
+
+    /** 计数持续不变时指数退避的上限, 实际取值不超过 idleTimeout 的一半 */
+    private Duration pollMaxInterval = Duration.ofSeconds(10);
+
+    /** 连接读写空闲超时, 超时后断开重连 */
+    private Duration idleTimeout = Duration.ofSeconds(15);
+
+    /** 场景最近一次被查询后, 在该时长内视为正被查看 */
+    private Duration pollHotWindow = Duration.ofSeconds(10);
+}
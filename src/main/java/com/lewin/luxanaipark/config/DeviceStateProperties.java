@@ -0,0 +1,24 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 海康设备状态配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class DeviceStateProperties {
+
+    /** 通道启用配置的定时刷新间隔, 配置变更报警会触发即时刷新 */
+    private Duration topologyRefreshInterval = Duration.ofMinutes(30);
+
+    /** 通道启用配置查询失败时, 临时结果的有效期, 到期后下次读取重新查询 */
+    private Duration topologyRetryInterval = Duration.ofMinutes(1);
+
+    /** 码率相对上一快照的变化超过该比例才视为状态变化 */
+    private double bitRateChangeRatio = 0.2;
+}
@@ -0,0 +1,30 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 海康设备登录配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class HikLoginProperties {
+
+    /** 同时进行的登录数, 即登录线程数 */
+    private int concurrency = 8;
+
+    /** SDK 建立连接的超时时间, 限制单次登录对线程的占用 */
+    private Duration connectTimeout = Duration.ofSeconds(3);
+
+    /** 首次失败后的重试间隔 */
+    private Duration initialRetryDelay = Duration.ofSeconds(1);
+
+    /** 重试间隔指数增长的上限 */
+    private Duration maxRetryDelay = Duration.ofSeconds(60);
+
+    /** 抖动比例, 实际间隔在 [delay * (1 - jitter), delay] 之间随机 */
+    private double jitter = 0.5;
+}
@@ -0,0 +1,30 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 客流历史配置. 每台相机保留精细、粗略两级环形缓冲, 内存占用为 16 字节 x (精细槽位数 + 粗略槽位数)
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class HistoryProperties {
+
+    /** 精细采样间隔 */
+    private Duration fineResolution = Duration.ofSeconds(1);
+
+    /** 精细采样保留时长 */
+    private Duration fineRetention = Duration.ofHours(1);
+
+    /** 粗略采样间隔, 需为精细采样间隔的整数倍 */
+    private Duration coarseResolution = Duration.ofMinutes(1);
+
+    /** 粗略采样保留时长 */
+    private Duration coarseRetention = Duration.ofDays(1);
+
+    /** 单次查询返回的最大点数 */
+    private int maxPoints = 3600;
+}
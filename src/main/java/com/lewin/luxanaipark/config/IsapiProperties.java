@@ -0,0 +1,30 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 海康 ISAPI 透传配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class IsapiProperties {
+
+    /** native 缓冲区池大小, 即同时进行的 ISAPI 调用上限 */
+    private int poolSize = 4;
+
+    /** 响应体缓冲区大小 */
+    private int outBufferSize = 1024 * 1024;
+
+    /** 状态缓冲区大小 */
+    private int statusBufferSize = 16 * 1024;
+
+    /** SDK 接收超时, 0 表示使用 SDK 默认值 */
+    private Duration recvTimeout = Duration.ZERO;
+
+    /** 等待空闲缓冲区的最长时间 */
+    private Duration leaseTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+/**
+ * 场景在场人数与拥挤程度配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class OccupancyProperties {
+
+    /** 拥挤程度回落的滞回比例, 人数需低于阈值 x (1 - 比例) 才降级 */
+    private double hysteresisRatio = 0.05;
+
+    /** 滞回的最小人数 */
+    private int minHysteresis = 1;
+}
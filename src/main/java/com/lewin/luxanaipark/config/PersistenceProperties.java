@@ -0,0 +1,37 @@
+package com.lewin.luxanaipark.config;
+
+import com.lewin.luxanaipark.persist.FsyncPolicy;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 客流持久化配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class PersistenceProperties {
+
+    /** 是否启用客流日志 */
+    private boolean enabled = true;
+
+    /** 日志与快照目录 */
+    private String dir = "data/traffic";
+
+    /** 单个日志段文件大小(字节) */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /** 刷盘策略 */
+    private FsyncPolicy fsync = FsyncPolicy.interval;
+
+    /** 刷盘间隔, fsync 为 interval 时生效 */
+    private Duration fsyncInterval = Duration.ofSeconds(1);
+
+    /** 快照间隔, 重启时只需回放最近一次快照之后的日志 */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    /** 日志段保留时长, 超过且已被快照覆盖的日志段会被删除 */
+    private Duration retention = Duration.ofDays(2);
+}
@@ -0,0 +1,27 @@
+package com.lewin.luxanaipark.config;
+
+import com.lewin.luxanaipark.pipeline.BackpressurePolicy;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 事件管道配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class PipelineProperties {
+
+    /** 消费线程数, 事件按设备分片 */
+    private int workers = 2;
+
+    /** 总容量, 平均分配到各分片 */
+    private int capacity = 100_000;
+
+    private BackpressurePolicy policy = BackpressurePolicy.DROP_OLDEST;
+
+    /** 关闭时等待积压事件处理完成的最长时间 */
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+}
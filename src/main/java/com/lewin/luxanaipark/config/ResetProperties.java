@@ -0,0 +1,33 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 定时客流清零配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class ResetProperties {
+
+    /** 同时进行清零的设备数上限 */
+    private int parallelism = 32;
+
+    /** 单台设备单次清零的超时时间 */
+    private Duration deviceTimeout = Duration.ofSeconds(10);
+
+    /** 整次清零任务的截止时间, 到期后未完成的设备记为超时 */
+    private Duration jobTimeout = Duration.ofMinutes(5);
+
+    /** 失败后的重试次数 */
+    private int retries = 2;
+
+    /** 重试间隔 */
+    private Duration retryDelay = Duration.ofSeconds(2);
+
+    /** 保留的历史报告数 */
+    private int historySize = 20;
+}
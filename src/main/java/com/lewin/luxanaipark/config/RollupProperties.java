@@ -0,0 +1,24 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 客流汇总配置, 各粒度已结束窗口的保留时长
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class RollupProperties {
+
+    /** 分钟汇总保留时长 */
+    private Duration minuteRetention = Duration.ofDays(1);
+
+    /** 小时汇总保留时长 */
+    private Duration hourRetention = Duration.ofDays(31);
+
+    /** 天汇总保留时长 */
+    private Duration dayRetention = Duration.ofDays(366);
+}
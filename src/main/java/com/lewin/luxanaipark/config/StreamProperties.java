@@ -0,0 +1,39 @@
+package com.lewin.luxanaipark.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 客流推送配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Data
+public class StreamProperties {
+
+    /** 单个订阅者两次推送的最小间隔, 期间的变化会合并为一次增量 */
+    private Duration minInterval = Duration.ofMillis(500);
+
+    /** 无数据变化时的心跳间隔 */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    /** 单次推送的最长耗时, 超过后断开该订阅者 */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+
+    /** SSE 连接最长保持时间, 到期后由客户端自动重连 */
+    private Duration sseTimeout = Duration.ofMinutes(30);
+
+    /** WebSocket 单个会话的发送缓冲上限(字节), 超过后断开该会话 */
+    private int wsBufferSizeLimit = 256 * 1024;
+
+    /** 推送线程数 */
+    private int sendThreads = 4;
+
+    /** 发送超时后仍阻塞在连接上的推送线程, 最多为其补充多少个线程, 避免阻塞的连接占满推送线程 */
+    private int maxStalledSends = 64;
+
+    /** 订阅者数量上限 */
+    private int maxSubscribers = 5000;
+}
@@ -0,0 +1,29 @@
+package com.lewin.luxanaipark.config;
+
+import com.lewin.luxanaipark.stream.TrafficWebSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket 配置
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final TrafficWebSocketHandler trafficWebSocketHandler;
+
+    public WebSocketConfig(TrafficWebSocketHandler trafficWebSocketHandler) {
+        this.trafficWebSocketHandler = trafficWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(trafficWebSocketHandler, "/scene/traffic/ws").setAllowedOriginPatterns("*");
+    }
+}
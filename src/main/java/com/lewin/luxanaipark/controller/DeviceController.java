@@ -0,0 +1,49 @@
+package com.lewin.luxanaipark.controller;
+
+import com.lewin.commons.constants.CommonResponseCode;
+import com.lewin.commons.entity.LewinResult;
+import com.lewin.luxanaipark.device.WorkState;
+import com.lewin.luxanaipark.device.WorkStateRegistry;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collection;
+
+/**
+ * 设备状态接口
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@RestController
+@CrossOrigin
+@RequestMapping("/device")
+public class DeviceController {
+
+    private final WorkStateRegistry workStateRegistry;
+
+    public DeviceController(WorkStateRegistry workStateRegistry) {
+        this.workStateRegistry = workStateRegistry;
+    }
+
+    /**
+     * 所有设备的当前工作状态快照
+     */
+    @GetMapping("/work-state")
+    public LewinResult<Collection<WorkState>> workStates() {
+        return LewinResult.ok(workStateRegistry.all());
+    }
+
+    /**
+     * 单个设备的当前工作状态快照
+     *
+     * @param key 相机 key(ip:port)
+     */
+    @GetMapping("/work-state/one")
+    public LewinResult<WorkState> workState(@RequestParam String key) {
+        var state = workStateRegistry.get(key);
+        if (state == null) {
+            return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "暂无该设备状态");
+        }
+        return LewinResult.ok(state);
+    }
+}
@@ -0,0 +1,88 @@
+package com.lewin.luxanaipark.controller;
+
+import com.lewin.commons.entity.LewinResult;
+import com.lewin.luxanaipark.alert.AlertDispatcher;
+import com.lewin.luxanaipark.alert.AlertStats;
+import com.lewin.luxanaipark.camera.ConnectionStats;
+import com.lewin.luxanaipark.camera.DeepcamConnectionManager;
+import com.lewin.luxanaipark.device.LoginStats;
+import com.lewin.luxanaipark.jna.CustomDeviceStateCallback;
+import com.lewin.luxanaipark.jna.CustomWarningCallback;
+import com.lewin.luxanaipark.persist.TrafficWal;
+import com.lewin.luxanaipark.persist.WalStats;
+import com.lewin.luxanaipark.pipeline.PipelineStats;
+import com.lewin.luxanaipark.service.IHCNetService;
+import com.lewin.luxanaipark.traffic.CoalescerStats;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 运行指标接口
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@RestController
+@CrossOrigin
+@RequestMapping("/monitor")
+public class MonitorController {
+
+    private final CustomWarningCallback customWarningCallback;
+    private final CustomDeviceStateCallback customDeviceStateCallback;
+    private final TrafficCoalescer trafficCoalescer;
+    private final DeepcamConnectionManager deepcamConnectionManager;
+    private final IHCNetService hcNetService;
+    private final TrafficWal trafficWal;
+    private final AlertDispatcher alertDispatcher;
+
+    public MonitorController(CustomWarningCallback customWarningCallback,
+                             CustomDeviceStateCallback customDeviceStateCallback,
+                             TrafficCoalescer trafficCoalescer,
+                             DeepcamConnectionManager deepcamConnectionManager,
+                             IHCNetService hcNetService,
+                             TrafficWal trafficWal,
+                             AlertDispatcher alertDispatcher) {
+        this.customWarningCallback = customWarningCallback;
+        this.customDeviceStateCallback = customDeviceStateCallback;
+        this.trafficCoalescer = trafficCoalescer;
+        this.deepcamConnectionManager = deepcamConnectionManager;
+        this.hcNetService = hcNetService;
+        this.trafficWal = trafficWal;
+        this.alertDispatcher = alertDispatcher;
+    }
+
+    @GetMapping("/pipeline")
+    public LewinResult<List<PipelineStats>> pipeline() {
+        return LewinResult.ok(List.of(customWarningCallback.stats(), customDeviceStateCallback.stats()));
+    }
+
+    @GetMapping("/traffic")
+    public LewinResult<CoalescerStats> traffic() {
+        return LewinResult.ok(trafficCoalescer.stats());
+    }
+
+    @GetMapping("/deepcam")
+    public LewinResult<ConnectionStats> deepcam() {
+        return LewinResult.ok(deepcamConnectionManager.stats());
+    }
+
+    @GetMapping("/hik-login")
+    public LewinResult<LoginStats> hikLogin() {
+        return LewinResult.ok(hcNetService.loginStats());
+    }
+
+    @GetMapping("/wal")
+    public LewinResult<WalStats> wal() {
+        return LewinResult.ok(trafficWal.stats());
+    }
+
+    @GetMapping("/alert")
+    public LewinResult<AlertStats> alert() {
+        return LewinResult.ok(alertDispatcher.stats());
+    }
+}
@@ -0,0 +1,50 @@
+package com.lewin.luxanaipark.controller;
+
+import com.lewin.commons.constants.CommonResponseCode;
+import com.lewin.commons.entity.LewinResult;
+import com.lewin.luxanaipark.reset.ResetOrchestrator;
+import com.lewin.luxanaipark.reset.ResetReport;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 客流清零任务接口
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@RestController
+@CrossOrigin
+@RequestMapping("/reset")
+public class ResetController {
+
+    private final ResetOrchestrator resetOrchestrator;
+
+    public ResetController(ResetOrchestrator resetOrchestrator) {
+        this.resetOrchestrator = resetOrchestrator;
+    }
+
+    /**
+     * 手动触发一次全量清零, 完成后返回报告
+     */
+    @PostMapping("/run")
+    public CompletableFuture<LewinResult<ResetReport>> run() {
+        return resetOrchestrator.run("manual");
+    }
+
+    @GetMapping("/report/latest")
+    public LewinResult<ResetReport> latest() {
+        var report = resetOrchestrator.latest();
+        if (report == null) {
+            return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "暂无清零报告");
+        }
+        return LewinResult.ok(report);
+    }
+
+    @GetMapping("/report")
+    public LewinResult<List<ResetReport>> history() {
+        return LewinResult.ok(resetOrchestrator.history());
+    }
+}
@@ -1,13 +1,28 @@
 package com.lewin.luxanaipark.controller;
 
 import com.lewin.commons.entity.LewinResult;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.StreamProperties;
 import com.lewin.luxanaipark.entity.Scene;
 import com.lewin.luxanaipark.entity.TrafficParams;
-import com.lewin.luxanaipark.entity.TrafficVO;
+import com.lewin.luxanaipark.history.SceneHistory;
+import com.lewin.luxanaipark.occupancy.OccupancyEngine;
+import com.lewin.luxanaipark.occupancy.SceneOccupancy;
+import com.lewin.luxanaipark.rollup.RollupGranularity;
+import com.lewin.luxanaipark.rollup.SceneRollup;
 import com.lewin.luxanaipark.service.ISceneService;
+import com.lewin.luxanaipark.stream.SseTrafficSubscriber;
+import com.lewin.luxanaipark.stream.TrafficStreamHub;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 流量接口
@@ -20,10 +35,22 @@ import java.util.List;
 @RequestMapping("/scene")
 public class TrafficController {
 
+    private static final String OCCUPANCY_HEADER = "X-Scene-Occupancy";
+    private static final String CROWD_LEVEL_HEADER = "X-Crowd-Level";
+
     private final ISceneService sceneService;
+    private final OccupancyEngine occupancyEngine;
+    private final TrafficStreamHub trafficStreamHub;
+    private final StreamProperties streamProperties;
 
-    public TrafficController(ISceneService sceneService) {
+    public TrafficController(ISceneService sceneService,
+                             OccupancyEngine occupancyEngine,
+                             TrafficStreamHub trafficStreamHub,
+                             BizProperties bizProperties) {
         this.sceneService = sceneService;
+        this.occupancyEngine = occupancyEngine;
+        this.trafficStreamHub = trafficStreamHub;
+        this.streamProperties = bizProperties.getStream();
     }
 
     @GetMapping("/all")
@@ -31,13 +58,96 @@ public class TrafficController {
         return sceneService.all();
     }
 
+    /**
+     * 所有场景的在场人数与拥挤程度
+     */
+    @GetMapping("/occupancy")
+    public LewinResult<List<SceneOccupancy>> occupancy() {
+        return LewinResult.ok(occupancyEngine.all());
+    }
+
+    /**
+     * 返回预序列化的响应并附带强 ETag, If-None-Match 命中时返回 304.
+     * 场景在场人数与拥挤程度在响应体的 occupancy 字段中返回, 同时保留在响应头中; ETag 随在场人数变化
+     */
     @GetMapping("/traffic/{name}")
-    public LewinResult<List<TrafficVO>> fetch(@PathVariable String name) {
-        return sceneService.traffic(name);
+    @CrossOrigin(exposedHeaders = {HttpHeaders.ETAG, OCCUPANCY_HEADER, CROWD_LEVEL_HEADER})
+    public ResponseEntity<?> fetch(@PathVariable String name,
+                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        var response = sceneService.trafficResponse(name);
+        if (response == null) {
+            return ResponseEntity.ok(sceneService.traffic(name));
+        }
+
+        var headers = new HttpHeaders();
+        headers.setETag(response.etag());
+        headers.setCacheControl(CacheControl.noCache());
+        // 与响应体使用同一份在场人数
+        var occupancy = response.occupancy();
+        if (occupancy != null) {
+            headers.set(OCCUPANCY_HEADER, String.valueOf(occupancy.occupancy()));
+            headers.set(CROWD_LEVEL_HEADER, occupancy.level().name());
+        }
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
+    }
+
+    /**
+     * 场景客流历史
+     *
+     * @param from 起始时间(毫秒)
+     * @param to   结束时间(毫秒), 默认当前时间
+     * @param step 点间隔(毫秒), 默认为采样间隔
+     */
+    @GetMapping("/traffic/{name}/history")
+    public LewinResult<SceneHistory> history(@PathVariable String name,
+                                             @RequestParam long from,
+                                             @RequestParam(required = false) Long to,
+                                             @RequestParam(required = false) Long step) {
+        return sceneService.history(name, from, to, step);
+    }
+
+    /**
+     * 场景客流汇总, 返回场景整体与各相机在区间内开始的窗口
+     *
+     * @param granularity 汇总粒度 minute/hour/day
+     * @param from        起始时间(毫秒)
+     * @param to          结束时间(毫秒), 默认不限
+     */
+    @GetMapping("/traffic/{name}/rollup")
+    public LewinResult<SceneRollup> rollup(@PathVariable String name,
+                                           @RequestParam(defaultValue = "hour") RollupGranularity granularity,
+                                           @RequestParam long from,
+                                           @RequestParam(required = false) Long to) {
+        return sceneService.rollup(name, granularity, from, to);
+    }
+
+    /**
+     * 订阅场景客流: 连接后推送全量快照(snapshot), 之后按间隔推送增量(delta)
+     *
+     * @param interval 推送间隔(毫秒), 不小于配置的最小间隔
+     */
+    @GetMapping(value = "/traffic/{name}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable String name, @RequestParam(required = false) Long interval) {
+        var intervalMillis = trafficStreamHub.intervalMillis(interval);
+        trafficStreamHub.reserve(name);
+
+        var emitter = new SseEmitter(streamProperties.getSseTimeout().toMillis());
+        var subscriber = new SseTrafficSubscriber(name, intervalMillis, emitter);
+        emitter.onCompletion(() -> trafficStreamHub.unsubscribe(subscriber));
+        emitter.onTimeout(() -> trafficStreamHub.unsubscribe(subscriber));
+        emitter.onError(t -> trafficStreamHub.unsubscribe(subscriber));
+        trafficStreamHub.subscribe(subscriber);
+        return emitter;
     }
 
     @PostMapping("/traffic-clean")
-    public LewinResult<Void> clean(@RequestBody TrafficParams params) {
+    public CompletableFuture<LewinResult<Void>> clean(@RequestBody TrafficParams params) {
         return sceneService.clean(params);
     }
 }
@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 通道工作状态, 保留 SDK 原始状态码
+ *
+ * @param channel    通道序号, 从 0 开始
+ * @param record     0-不录像, 1-录像
+ * @param signal     0-正常, 1-信号丢失
+ * @param hardware   0-正常, 1-异常
+ * @param linkNum    客户端连接数
+ * @param bitRate    实际码率(bps)
+ * @param ipcLinkNum IP 接入通道的连接数
+ * @author Jun
+ * @since 1.0.0
+ */
+public record ChannelState(int channel,
+                           int record,
+                           int signal,
+                           int hardware,
+                           int linkNum,
+                           int bitRate,
+                           int ipcLinkNum) {
+}
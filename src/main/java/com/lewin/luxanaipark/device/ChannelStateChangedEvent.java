@@ -0,0 +1,10 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 通道状态变化, 新增通道时 previous 为 null, 通道被停用时 current 为 null
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public record ChannelStateChangedEvent(String key, ChannelState previous, ChannelState current) implements WorkStateEvent {
+}
@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 设备模拟通道启用情况
+ *
+ * @param userId       查询时的会话用户 id, 用于识别重新登录后的过期数据
+ * @param channelCount 模拟通道个数
+ * @param enabledMask  启用的通道位图, 第 i 位对应第 i 个模拟通道
+ * @param loadedAt     加载时间戳(毫秒)
+ * @param provisional  是否为查询失败时的临时结果(模拟通道全部启用)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record ChannelTopology(int userId, int channelCount, int enabledMask, long loadedAt, boolean provisional) {
+
+    public boolean enabled(int channel) {
+        return channel < channelCount && (enabledMask & (1 << channel)) != 0;
+    }
+}
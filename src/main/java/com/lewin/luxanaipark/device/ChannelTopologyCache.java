@@ -0,0 +1,164 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.jna.HCNetSDK;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import com.sun.jna.ptr.IntByReference;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备通道启用配置缓存.
+ * <p>
+ * 通道启用配置几乎不变, 登录时查询一次, 之后按较长间隔定时刷新, 收到 IPC 接入配置变更报警时即时刷新.
+ * 缓存按相机 key 存放并记录查询时的 userId, 设备重新登录后旧数据自动失效.
+ * 查询失败且没有旧数据时缓存模拟通道全部启用的临时结果, 在 {@code topologyRetryInterval} 内不再重复查询.
+ * 设备状态回调直接读取缓存, 不再每次报文都同步调用 {@code NET_DVR_GetDVRConfig}.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ChannelTopologyCache implements DisposableBean {
+
+    private final Map<String, ChannelTopology> cache = new ConcurrentHashMap<>();
+    private final DeviceSessionRegistry deviceSessionRegistry;
+    private final long retryIntervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("hik-topology", true));
+
+    public ChannelTopologyCache(DeviceSessionRegistry deviceSessionRegistry, BizProperties bizProperties) {
+        this.deviceSessionRegistry = deviceSessionRegistry;
+        this.retryIntervalMillis = bizProperties.getDeviceState().getTopologyRetryInterval().toMillis();
+        var interval = bizProperties.getDeviceState().getTopologyRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取会话对应的通道启用情况, 缓存缺失、属于旧会话或临时结果已过期时同步查询
+     */
+    public ChannelTopology get(DeviceSession session) {
+        var topology = cache.get(session.key());
+        if (topology != null && topology.userId() == session.userId()
+                && (!topology.provisional() || System.currentTimeMillis() - topology.loadedAt() < retryIntervalMillis)) {
+            return topology;
+        }
+        return load(session);
+    }
+
+    /**
+     * 同步查询并更新缓存, 登录成功后调用.
+     * 查询失败时保留同一会话的旧数据; 没有旧数据则缓存模拟通道全部启用的临时结果, 过期后再重新查询
+     */
+    public ChannelTopology load(DeviceSession session) {
+        var topology = query(session);
+        if (topology != null) {
+            cache.put(session.key(), topology);
+            return topology;
+        }
+        var previous = cache.get(session.key());
+        if (previous != null && previous.userId() == session.userId() && !previous.provisional()) {
+            return previous;
+        }
+        var provisional = allAnalogEnabled(session, true);
+        cache.put(session.key(), provisional);
+        return provisional;
+    }
+
+    /**
+     * 异步刷新, 供报警回调在配置变更时调用
+     */
+    public void refreshAsync(int userId) {
+        try {
+            scheduler.execute(() -> {
+                var session = deviceSessionRegistry.byUserId(userId);
+                if (session != null) {
+                    log.info("设备[{}]通道配置变更, 刷新缓存", session.key());
+                    load(session);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("通道配置刷新线程已关闭");
+        }
+    }
+
+    private void refreshAll() {
+        // 移除已注销会话的缓存
+        cache.entrySet().removeIf(e -> {
+            var session = deviceSessionRegistry.byKey(e.getKey());
+            return session == null || session.userId() != e.getValue().userId();
+        });
+        for (var session : deviceSessionRegistry.all()) {
+            try {
+                load(session);
+            } catch (RuntimeException e) {
+                log.warn("设备[" + session.key() + "]通道配置刷新失败", e);
+            }
+        }
+    }
+
+    /**
+     * 查询通道启用配置, 设备不支持该配置时视为模拟通道全部启用, 其他错误返回 null
+     */
+    private ChannelTopology query(DeviceSession session) {
+        var channelCount = channelCount(session);
+        var ipParaCfg = new HCNetSDK.NET_DVR_IPPARACFG();
+        ipParaCfg.write();
+        try {
+            var bytesReturned = new IntByReference(0);
+            var success = sdk().NET_DVR_GetDVRConfig(new NativeLong(session.userId()), HCNetSDK.NET_DVR_GET_IPPARACFG,
+                    new NativeLong(0), ipParaCfg.getPointer(), ipParaCfg.size(), bytesReturned);
+
+            if (!success) {
+                var err = sdk().NET_DVR_GetLastError();
+                if (err == HCNetSDK.NET_DVR_NOSUPPORT) {
+                    // 设备不支持, 则表示没有 IP 通道, 模拟通道全部启用
+                    return allAnalogEnabled(session, false);
+                }
+                log.warn("设备[{}]通道配置查询失败, 错误码: {}", session.key(), err);
+                return null;
+            }
+            ipParaCfg.read();
+            var mask = 0;
+            for (int i = 0; i < channelCount; i++) {
+                if (ipParaCfg.byAnalogChanEnable[i] == 1) {
+                    mask |= 1 << i;
+                }
+            }
+            return new ChannelTopology(session.userId(), channelCount, mask, System.currentTimeMillis(), false);
+        } finally {
+            if (ipParaCfg.getPointer() instanceof Memory memory) {
+                memory.close();
+            }
+        }
+    }
+
+    private static ChannelTopology allAnalogEnabled(DeviceSession session, boolean provisional) {
+        var channelCount = channelCount(session);
+        var mask = channelCount == 32 ? -1 : (1 << channelCount) - 1;
+        return new ChannelTopology(session.userId(), channelCount, mask, System.currentTimeMillis(), provisional);
+    }
+
+    private static int channelCount(DeviceSession session) {
+        return Math.min(session.descriptor().channelCount(), HCNetSDK.MAX_ANALOG_CHANNUM);
+    }
+
+    private HCNetSDK sdk() {
+        return HCNetSDK.INSTANCE;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
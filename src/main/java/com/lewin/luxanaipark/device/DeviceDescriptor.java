@@ -0,0 +1,41 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.jna.HCNetSDK;
+import com.lewin.luxanaipark.utils.CommonUtils;
+import com.sun.jna.Memory;
+
+/**
+ * 海康设备描述, 登录时从 {@link HCNetSDK.NET_DVR_DEVICEINFO_V30} 提取一次, 之后不再持有 native 结构体
+ *
+ * @param serial        完整序列号
+ * @param trimmedSerial 裁剪后的序列号, 与配置中的 sn 对应
+ * @param channelCount  模拟通道个数
+ * @param startChannel  起始通道号
+ * @param deviceType    设备类型, 1:DVR 2:ATM DVR 3:DVS ......
+ * @author Jun
+ * @since 1.0.0
+ */
+public record DeviceDescriptor(String serial,
+                               String trimmedSerial,
+                               int channelCount,
+                               int startChannel,
+                               int deviceType) {
+
+    /**
+     * 提取需要的字段并释放结构体的 native 内存, 调用后不可再使用 deviceInfo
+     */
+    public static DeviceDescriptor extract(HCNetSDK.NET_DVR_DEVICEINFO_V30 deviceInfo) {
+        var serial = CommonUtils.bytes2Str(deviceInfo.sSerialNumber);
+        var descriptor = new DeviceDescriptor(
+                serial,
+                CommonUtils.trimSerialNumber(serial),
+                Byte.toUnsignedInt(deviceInfo.byChanNum),
+                Byte.toUnsignedInt(deviceInfo.byStartChan),
+                Byte.toUnsignedInt(deviceInfo.byDVRType)
+        );
+        if (deviceInfo.getPointer() instanceof Memory memory) {
+            memory.close();
+        }
+        return descriptor;
+    }
+}
@@ -0,0 +1,197 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.config.HikLoginProperties;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 海康设备登录调度.
+ * <p>
+ * 登录在固定大小的专用线程池中并发执行, 单台设备失败后按指数退避加随机抖动重试, 避免全场断网恢复时所有设备同时重连.
+ * 同一设备同一时刻最多只有一个登录任务.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public class DeviceLoginManager {
+
+    private final HikLoginProperties properties;
+    private final Predicate<CameraInfo> login;
+    private final ExecutorService loginExecutor;
+    private final ScheduledExecutorService retryScheduler;
+    private final Map<String, LoginState> states = new ConcurrentHashMap<>();
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong firstLoginNanos = new AtomicLong(-1);
+    private final AtomicLong allLoggedInNanos = new AtomicLong(-1);
+    private final AtomicInteger loggedIn = new AtomicInteger();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeToLoginNanos = new LongAdder();
+    private final LongAdder firstLogins = new LongAdder();
+    private final LongAccumulator maxTimeToLoginNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * @param properties 登录配置
+     * @param login      单次阻塞登录, 返回是否成功
+     */
+    public DeviceLoginManager(HikLoginProperties properties, Predicate<CameraInfo> login) {
+        this.properties = properties;
+        this.login = login;
+        this.loginExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getConcurrency()),
+                new DefaultThreadFactory("hik-login", true));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("hik-login-retry", true));
+    }
+
+    /**
+     * 批量提交登录
+     */
+    public void loginAll(Collection<CameraInfo> cameraInfos) {
+        log.info("开始登录海康设备[{}]台, 并发数[{}]", cameraInfos.size(), properties.getConcurrency());
+        cameraInfos.forEach(this::login);
+    }
+
+    /**
+     * 提交设备登录, 设备已在登录或重试等待中时忽略
+     */
+    public void login(CameraInfo cameraInfo) {
+        var state = states.computeIfAbsent(cameraInfo.key(), k -> new LoginState(cameraInfo));
+        if (!state.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (state.loggedIn) {
+            // 掉线后重新登录
+            state.loggedIn = false;
+            loggedIn.decrementAndGet();
+            state.failures = 0;
+        }
+        submit(state);
+    }
+
+    private void submit(LoginState state) {
+        try {
+            loginExecutor.execute(() -> attempt(state));
+        } catch (RejectedExecutionException e) {
+            log.debug("登录线程池已关闭, 放弃登录[{}]", state.cameraInfo.key());
+        }
+    }
+
+    private void attempt(LoginState state) {
+        var key = state.cameraInfo.key();
+        attempts.increment();
+        boolean success;
+        try {
+            success = login.test(state.cameraInfo);
+        } catch (RuntimeException e) {
+            log.error("设备[" + key + "]登录异常", e);
+            success = false;
+        }
+
+        if (success) {
+            state.failures = 0;
+            state.loggedIn = true;
+            state.scheduled.set(false);
+            onLoggedIn(state);
+            return;
+        }
+
+        failures.increment();
+        var delay = nextDelay(++state.failures);
+        log.warn("设备[{}]登录失败[{}]次, {}ms 后重试", key, state.failures, TimeUnit.NANOSECONDS.toMillis(delay));
+        try {
+            retryScheduler.schedule(() -> submit(state), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("登录线程池已关闭, 放弃登录[{}]", key);
+        }
+    }
+
+    /**
+     * 指数退避: initial * 2^(n-1), 不超过上限, 再在 [1 - jitter, 1] 倍之间随机
+     */
+    private long nextDelay(int failures) {
+        var initial = properties.getInitialRetryDelay().toNanos();
+        var max = properties.getMaxRetryDelay().toNanos();
+        var delay = initial;
+        for (int i = 0; i < failures - 1 && delay < max; i++) {
+            delay <<= 1;
+        }
+        delay = Math.min(delay, max);
+
+        var jitter = Math.min(Math.max(properties.getJitter(), 0), 1);
+        return (long) (delay * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private void onLoggedIn(LoginState state) {
+        var now = System.nanoTime();
+        var n = loggedIn.incrementAndGet();
+        if (state.firstLoginNanos < 0) {
+            state.firstLoginNanos = now;
+            var elapsed = now - state.createdNanos;
+            timeToLoginNanos.add(elapsed);
+            firstLogins.increment();
+            maxTimeToLoginNanos.accumulate(elapsed);
+        }
+        firstLoginNanos.compareAndSet(-1, now - startNanos);
+        if (n == states.size()) {
+            allLoggedInNanos.compareAndSet(-1, now - startNanos);
+            log.info("海康设备[{}]台全部登录完成, 耗时[{}]ms", n, TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+        }
+    }
+
+    public LoginStats stats() {
+        var logins = firstLogins.sum();
+        return new LoginStats(
+                states.size(),
+                loggedIn.get(),
+                attempts.sum(),
+                failures.sum(),
+                millis(firstLoginNanos.get()),
+                millis(allLoggedInNanos.get()),
+                logins == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(timeToLoginNanos.sum() / logins),
+                TimeUnit.NANOSECONDS.toMillis(maxTimeToLoginNanos.get())
+        );
+    }
+
+    private static long millis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        loginExecutor.shutdownNow();
+    }
+
+    private static final class LoginState {
+
+        private final CameraInfo cameraInfo;
+        private final long createdNanos = System.nanoTime();
+        /** 已提交登录或处于重试等待中 */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean loggedIn;
+        private volatile long firstLoginNanos = -1;
+        /** 连续失败次数, 只在登录线程中修改 */
+        private volatile int failures;
+
+        private LoginState(CameraInfo cameraInfo) {
+            this.cameraInfo = cameraInfo;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 设备上下线
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public record DeviceOnlineChangedEvent(String key, boolean online) implements WorkStateEvent {
+}
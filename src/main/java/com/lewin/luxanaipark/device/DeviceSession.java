@@ -0,0 +1,28 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 海康设备登录会话, 不可变, 布防后通过 {@link #withAlarmHandle(int)} 生成新会话替换
+ *
+ * @param userId      登录返回的用户 id
+ * @param key         相机 key(ip:port)
+ * @param alarmHandle 布防句柄, 未布防为 -1
+ * @param descriptor  登录返回的设备描述
+ * @author Jun
+ * @since 1.0.0
+ */
+public record DeviceSession(int userId,
+                            String key,
+                            int alarmHandle,
+                            DeviceDescriptor descriptor) {
+
+    /**
+     * @return 设备序列号(已裁剪)
+     */
+    public String sn() {
+        return descriptor.trimmedSerial();
+    }
+
+    public DeviceSession withAlarmHandle(int alarmHandle) {
+        return new DeviceSession(userId, key, alarmHandle, descriptor);
+    }
+}
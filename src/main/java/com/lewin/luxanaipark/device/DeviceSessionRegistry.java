@@ -0,0 +1,136 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 海康设备会话注册表, 维护 userId、相机 key、序列号、布防句柄之间的双向索引.
+ * <p>
+ * 所有索引指向同一个不可变 {@link DeviceSession}, 写操作串行执行, 先写入新会话再按值移除旧会话残留的索引,
+ * 读操作为单次 O(1) 查找, 不会读到新旧会话混合的结果. 设备重新登录时旧会话的所有索引随之移除,
+ * 不会再返回上一次会话的 userId.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class DeviceSessionRegistry {
+
+    private final Map<Integer, DeviceSession> userIdIndex = new ConcurrentHashMap<>();
+    private final Map<String, DeviceSession> keyIndex = new ConcurrentHashMap<>();
+    private final Map<String, DeviceSession> snIndex = new ConcurrentHashMap<>();
+    private final Map<Integer, DeviceSession> alarmHandleIndex = new ConcurrentHashMap<>();
+    private final TrafficRegistry trafficRegistry;
+
+    public DeviceSessionRegistry(TrafficRegistry trafficRegistry) {
+        this.trafficRegistry = trafficRegistry;
+    }
+
+    /**
+     * 登录成功, 建立会话; 同一相机或同一 userId 的旧会话被替换
+     *
+     * @return 被替换的同相机旧会话, 没有时返回 null
+     */
+    public synchronized DeviceSession open(DeviceSession session) {
+        var previous = keyIndex.get(session.key());
+        var reused = userIdIndex.get(session.userId());
+
+        // 先覆盖再按值移除旧会话残留的索引, 读者不会观察到空窗
+        put(session);
+        if (previous != null) {
+            remove(previous);
+        }
+        if (reused != null && reused != previous) {
+            // SDK 回收后复用了 userId
+            remove(reused);
+        }
+        trafficRegistry.bindUserId(session.userId(), session.key(), session.sn());
+        return previous;
+    }
+
+    /**
+     * 布防成功, 记录布防句柄
+     *
+     * @return 更新后的会话, userId 对应会话不存在时返回 null
+     */
+    public synchronized DeviceSession attachAlarmHandle(int userId, int alarmHandle) {
+        var session = userIdIndex.get(userId);
+        if (session == null) {
+            return null;
+        }
+        var updated = session.withAlarmHandle(alarmHandle);
+        put(updated);
+        if (session.alarmHandle() >= 0 && session.alarmHandle() != alarmHandle) {
+            alarmHandleIndex.remove(session.alarmHandle(), session);
+        }
+        return updated;
+    }
+
+    /**
+     * 注销会话
+     *
+     * @return 被注销的会话, 不存在时返回 null
+     */
+    public synchronized DeviceSession close(int userId) {
+        var session = userIdIndex.get(userId);
+        if (session == null) {
+            return null;
+        }
+        remove(session);
+        trafficRegistry.unbindUserId(userId);
+        return session;
+    }
+
+    public DeviceSession byUserId(int userId) {
+        return userIdIndex.get(userId);
+    }
+
+    public DeviceSession byKey(String key) {
+        return keyIndex.get(key);
+    }
+
+    public DeviceSession bySn(String sn) {
+        return snIndex.get(sn);
+    }
+
+    public DeviceSession byAlarmHandle(int alarmHandle) {
+        return alarmHandleIndex.get(alarmHandle);
+    }
+
+    public Collection<DeviceSession> all() {
+        return Collections.unmodifiableCollection(userIdIndex.values());
+    }
+
+    private void put(DeviceSession session) {
+        userIdIndex.put(session.userId(), session);
+        keyIndex.put(session.key(), session);
+        if (!ObjectUtils.isEmpty(session.sn())) {
+            var exist = snIndex.put(session.sn(), session);
+            if (exist != null && !exist.key().equals(session.key())) {
+                log.warn("序列号[{}]同时出现在设备[{}]与[{}]", session.sn(), exist.key(), session.key());
+            }
+        }
+        if (session.alarmHandle() >= 0) {
+            alarmHandleIndex.put(session.alarmHandle(), session);
+        }
+    }
+
+    private void remove(DeviceSession session) {
+        userIdIndex.remove(session.userId(), session);
+        keyIndex.remove(session.key(), session);
+        if (!ObjectUtils.isEmpty(session.sn())) {
+            snIndex.remove(session.sn(), session);
+        }
+        if (session.alarmHandle() >= 0) {
+            alarmHandleIndex.remove(session.alarmHandle(), session);
+        }
+    }
+}
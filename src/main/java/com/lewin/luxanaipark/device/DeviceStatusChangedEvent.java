@@ -0,0 +1,10 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 设备整体状态变化, 首次上报时 previous 为 -1
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public record DeviceStatusChangedEvent(String key, int previous, int current) implements WorkStateEvent {
+}
@@ -0,0 +1,25 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 海康设备登录指标
+ *
+ * @param devices              设备总数
+ * @param loggedIn             已登录设备数
+ * @param attempts             登录尝试次数
+ * @param failures             登录失败次数
+ * @param firstLoginMillis     启动到首台设备登录成功的耗时, 尚无成功时为 -1
+ * @param allLoggedInMillis    启动到全部设备登录成功的耗时, 尚未全部成功时为 -1
+ * @param avgTimeToLoginMillis 单台设备从开始登录到首次成功的平均耗时
+ * @param maxTimeToLoginMillis 单台设备从开始登录到首次成功的最大耗时
+ * @author Jun
+ * @since 1.0.0
+ */
+public record LoginStats(int devices,
+                         int loggedIn,
+                         long attempts,
+                         long failures,
+                         long firstLoginMillis,
+                         long allLoggedInMillis,
+                         long avgTimeToLoginMillis,
+                         long maxTimeToLoginMillis) {
+}
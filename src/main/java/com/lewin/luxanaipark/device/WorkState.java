@@ -0,0 +1,29 @@
+package com.lewin.luxanaipark.device;
+
+import java.util.List;
+
+/**
+ * 设备工作状态快照, 不可变, 仅在状态真正变化时替换
+ *
+ * @param key          相机 key(ip:port)
+ * @param userId       会话用户 id
+ * @param online       是否在线
+ * @param deviceStatus 0-正常, 1-CPU占用率太高(超过85%), 2-硬件错误
+ * @param channels     启用通道的状态
+ * @param version      快照版本, 每次变化递增
+ * @param updatedAt    最近一次变化时间戳(毫秒)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record WorkState(String key,
+                        int userId,
+                        boolean online,
+                        int deviceStatus,
+                        List<ChannelState> channels,
+                        long version,
+                        long updatedAt) {
+
+    public WorkState withOnline(boolean online) {
+        return new WorkState(key, userId, online, deviceStatus, channels, version + 1, System.currentTimeMillis());
+    }
+}
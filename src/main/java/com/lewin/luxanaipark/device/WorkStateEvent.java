@@ -0,0 +1,15 @@
+package com.lewin.luxanaipark.device;
+
+/**
+ * 设备工作状态变化事件, 通过 {@link org.springframework.context.ApplicationEventPublisher} 发布
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public sealed interface WorkStateEvent permits DeviceOnlineChangedEvent, DeviceStatusChangedEvent, ChannelStateChangedEvent {
+
+    /**
+     * @return 相机 key(ip:port)
+     */
+    String key();
+}
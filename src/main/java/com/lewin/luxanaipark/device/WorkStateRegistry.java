@@ -0,0 +1,174 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备工作状态注册表.
+ * <p>
+ * 每份状态报文先与上一份快照逐字段比较, 无变化时直接返回, 不分配任何对象; 有变化时才生成新快照并发布
+ * {@link WorkStateEvent}. 码率持续波动, 只有相对变化超过阈值才视为变化.
+ * <p>
+ * 同一设备的状态报文由设备状态管道按 userId 分片, 在同一线程中串行处理. 设备在线状态以本注册表为准.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class WorkStateRegistry {
+
+    private final Map<String, WorkState> states = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final double bitRateChangeRatio;
+
+    public WorkStateRegistry(ApplicationEventPublisher eventPublisher, BizProperties bizProperties) {
+        this.eventPublisher = eventPublisher;
+        this.bitRateChangeRatio = bizProperties.getDeviceState().getBitRateChangeRatio();
+    }
+
+    public WorkState get(String key) {
+        return states.get(key);
+    }
+
+    public Collection<WorkState> all() {
+        return Collections.unmodifiableCollection(states.values());
+    }
+
+    /**
+     * @return 设备是否在线, 尚未收到状态报文时视为离线
+     */
+    public boolean isOnline(String key) {
+        var state = states.get(key);
+        return state != null && state.online();
+    }
+
+    /**
+     * 更新在线状态, 已有快照时只在状态翻转时替换并发布事件
+     */
+    public void online(String key, boolean online) {
+        var changed = new boolean[1];
+        states.computeIfPresent(key, (k, prev) -> {
+            if (prev.online() == online) {
+                return prev;
+            }
+            changed[0] = true;
+            return prev.withOnline(online);
+        });
+        if (changed[0]) {
+            publish(new DeviceOnlineChangedEvent(key, online));
+        }
+    }
+
+    /**
+     * 比较状态报文与当前快照, 有变化时替换快照并发布事件
+     *
+     * @return 是否发生变化
+     */
+    public boolean update(DeviceSession session, WorkStateReport report, ChannelTopology topology) {
+        var key = session.key();
+        var prev = states.get(key);
+        if (prev != null && prev.userId() == session.userId() && prev.online()
+                && prev.deviceStatus() == report.deviceStatus()
+                && sameChannels(prev.channels(), report, topology)) {
+            return false;
+        }
+
+        var channels = new ArrayList<ChannelState>(Integer.bitCount(topology.enabledMask()));
+        for (int i = 0; i < topology.channelCount(); i++) {
+            if (topology.enabled(i)) {
+                channels.add(report.channel(i));
+            }
+        }
+        var version = prev == null ? 1 : prev.version() + 1;
+        var next = new WorkState(key, session.userId(), true, report.deviceStatus(), List.copyOf(channels),
+                version, System.currentTimeMillis());
+        states.put(key, next);
+
+        if (prev == null || !prev.online()) {
+            publish(new DeviceOnlineChangedEvent(key, true));
+        }
+        if (prev == null || prev.deviceStatus() != next.deviceStatus()) {
+            publish(new DeviceStatusChangedEvent(key, prev == null ? -1 : prev.deviceStatus(), next.deviceStatus()));
+        }
+        publishChannelChanges(key, prev == null ? List.of() : prev.channels(), next.channels());
+        return true;
+    }
+
+    private boolean sameChannels(List<ChannelState> prev, WorkStateReport report, ChannelTopology topology) {
+        var j = 0;
+        for (int i = 0; i < topology.channelCount(); i++) {
+            if (!topology.enabled(i)) {
+                continue;
+            }
+            if (j >= prev.size()) {
+                return false;
+            }
+            var p = prev.get(j++);
+            if (p.channel() != i
+                    || p.record() != report.record(i)
+                    || p.signal() != report.signal(i)
+                    || p.hardware() != report.hardware(i)
+                    || p.linkNum() != report.linkNum(i)
+                    || p.ipcLinkNum() != report.ipcLinkNum(i)
+                    || bitRateChanged(p.bitRate(), report.bitRate(i))) {
+                return false;
+            }
+        }
+        return j == prev.size();
+    }
+
+    private boolean changed(ChannelState p, ChannelState n) {
+        return p.record() != n.record()
+                || p.signal() != n.signal()
+                || p.hardware() != n.hardware()
+                || p.linkNum() != n.linkNum()
+                || p.ipcLinkNum() != n.ipcLinkNum()
+                || bitRateChanged(p.bitRate(), n.bitRate());
+    }
+
+    private boolean bitRateChanged(int prev, int current) {
+        if (prev == current) {
+            return false;
+        }
+        if (prev == 0 || current == 0) {
+            return true;
+        }
+        return Math.abs(current - prev) > prev * bitRateChangeRatio;
+    }
+
+    private void publishChannelChanges(String key, List<ChannelState> prev, List<ChannelState> next) {
+        int i = 0, j = 0;
+        while (i < prev.size() || j < next.size()) {
+            var p = i < prev.size() ? prev.get(i) : null;
+            var n = j < next.size() ? next.get(j) : null;
+            if (n == null || (p != null && p.channel() < n.channel())) {
+                publish(new ChannelStateChangedEvent(key, p, null));
+                i++;
+            } else if (p == null || n.channel() < p.channel()) {
+                publish(new ChannelStateChangedEvent(key, null, n));
+                j++;
+            } else {
+                if (changed(p, n)) {
+                    publish(new ChannelStateChangedEvent(key, p, n));
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private void publish(WorkStateEvent event) {
+        log.debug("设备状态变化: {}", event);
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,77 @@
+package com.lewin.luxanaipark.device;
+
+import com.lewin.luxanaipark.jna.HCNetSDK;
+
+/**
+ * 设备状态报文的副本.
+ * <p>
+ * {@code NET_DVR_WORKSTATE_V40} 的 native 内存只在回调期间有效, 回调线程中把设备状态与模拟通道状态复制为基本类型后
+ * 再交给设备状态管道处理.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public final class WorkStateReport {
+
+    private final int deviceStatus;
+    private final byte[] record = new byte[HCNetSDK.MAX_ANALOG_CHANNUM];
+    private final byte[] signal = new byte[HCNetSDK.MAX_ANALOG_CHANNUM];
+    private final byte[] hardware = new byte[HCNetSDK.MAX_ANALOG_CHANNUM];
+    private final int[] linkNum = new int[HCNetSDK.MAX_ANALOG_CHANNUM];
+    private final int[] bitRate = new int[HCNetSDK.MAX_ANALOG_CHANNUM];
+    private final int[] ipcLinkNum = new int[HCNetSDK.MAX_ANALOG_CHANNUM];
+
+    private WorkStateReport(int deviceStatus) {
+        this.deviceStatus = deviceStatus;
+    }
+
+    /**
+     * 复制状态报文, 只能在回调期间调用
+     */
+    public static WorkStateReport copyOf(HCNetSDK.NET_DVR_WORKSTATE_V40 workState) {
+        var report = new WorkStateReport(workState.dwDeviceStatic);
+        for (int i = 0; i < HCNetSDK.MAX_ANALOG_CHANNUM; i++) {
+            var c = workState.struChanStatic[i];
+            report.record[i] = c.byRecordStatic;
+            report.signal[i] = c.bySignalStatic;
+            report.hardware[i] = c.byHardwareStatic;
+            report.linkNum[i] = c.dwLinkNum;
+            report.bitRate[i] = c.dwBitRate;
+            report.ipcLinkNum[i] = c.dwIPLinkNum;
+        }
+        return report;
+    }
+
+    public int deviceStatus() {
+        return deviceStatus;
+    }
+
+    public int record(int channel) {
+        return record[channel];
+    }
+
+    public int signal(int channel) {
+        return signal[channel];
+    }
+
+    public int hardware(int channel) {
+        return hardware[channel];
+    }
+
+    public int linkNum(int channel) {
+        return linkNum[channel];
+    }
+
+    public int bitRate(int channel) {
+        return bitRate[channel];
+    }
+
+    public int ipcLinkNum(int channel) {
+        return ipcLinkNum[channel];
+    }
+
+    ChannelState channel(int channel) {
+        return new ChannelState(channel, record[channel], signal[channel], hardware[channel],
+                linkNum[channel], bitRate[channel], ipcLinkNum[channel]);
+    }
+}
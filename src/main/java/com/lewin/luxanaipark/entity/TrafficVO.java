@@ -1,31 +1,25 @@
 package com.lewin.luxanaipark.entity;
 
-import lombok.Data;
-import lombok.experimental.Accessors;
-
 /**
- * 流量对象
+ * 流量对象, 不可变, 作为场景快照的组成部分在多个读取方之间共享
  *
  * @author Jun
  * @since 1.0.0
  */
-@Data
-@Accessors(chain = true)
-public class TrafficVO {
-
-    private Integer in;
-
-    private Integer out;
-
-    private String name;
-
-    private String ip;
-
-    private Integer port;
-
-    private String location;
-
-    private Boolean onlineFlag;
-
-    private String streamUrl;
+public record TrafficVO(Integer in,
+                        Integer out,
+                        String name,
+                        String ip,
+                        Integer port,
+                        String location,
+                        Boolean onlineFlag,
+                        String streamUrl) {
+
+    public TrafficVO withCount(int in, int out) {
+        return new TrafficVO(in, out, name, ip, port, location, onlineFlag, streamUrl);
+    }
+
+    public TrafficVO withOnlineFlag(boolean onlineFlag) {
+        return new TrafficVO(in, out, name, ip, port, location, onlineFlag, streamUrl);
+    }
 }
@@ -0,0 +1,102 @@
+package com.lewin.luxanaipark.handler;
+
+import com.lewin.luxanaipark.config.DeepcamProperties;
+import com.lewin.luxanaipark.traffic.SceneReadTracker;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 神目相机自适应人数轮询.
+ * <p>
+ * 计数发生变化或所属场景正被查看时按最短间隔轮询, 计数持续不变时间隔逐次翻倍直至上限; 连接关闭时取消定时任务.
+ * 除 {@link #wakeup()} 外所有方法均在连接所属 event loop 中调用.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class AdaptivePoller {
+
+    private final ChannelHandlerContext ctx;
+    private final SceneReadTracker sceneReadTracker;
+    private final String sceneName;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Runnable wakeup = this::wakeup;
+    private long intervalMillis;
+    private ScheduledFuture<?> future;
+    private boolean stopped;
+
+    AdaptivePoller(ChannelHandlerContext ctx, SceneReadTracker sceneReadTracker, String sceneName, DeepcamProperties properties) {
+        this.ctx = ctx;
+        this.sceneReadTracker = sceneReadTracker;
+        this.sceneName = sceneName;
+        this.minIntervalMillis = properties.getPollMinInterval().toMillis();
+        // 轮询同时充当心跳, 退避上限需小于空闲超时
+        var ceiling = Math.min(properties.getPollMaxInterval().toMillis(), properties.getIdleTimeout().toMillis() / 2);
+        this.maxIntervalMillis = Math.max(minIntervalMillis, ceiling);
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    void start() {
+        sceneReadTracker.addWakeup(sceneName, wakeup);
+        schedule(0);
+    }
+
+    /**
+     * 收到人数响应
+     *
+     * @param changed 计数是否变化
+     */
+    void onCount(boolean changed) {
+        if (changed || sceneReadTracker.isHot(sceneName)) {
+            intervalMillis = minIntervalMillis;
+        } else {
+            intervalMillis = Math.min(maxIntervalMillis, intervalMillis * 2);
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        sceneReadTracker.removeWakeup(sceneName, wakeup);
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    long intervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * 场景开始被查看, 立即恢复最短间隔轮询, 可在任意线程调用
+     */
+    private void wakeup() {
+        ctx.executor().execute(() -> {
+            if (stopped || intervalMillis == minIntervalMillis) {
+                return;
+            }
+            intervalMillis = minIntervalMillis;
+            if (future != null) {
+                future.cancel(false);
+            }
+            schedule(0);
+        });
+    }
+
+    private void schedule(long delayMillis) {
+        future = ctx.executor().schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        if (stopped || !ctx.channel().isActive()) {
+            return;
+        }
+
+        // 发起客流查询指令
+        ctx.writeAndFlush(DeepcamCommands.getPersonCount());
+        schedule(intervalMillis);
+    }
+}
@@ -0,0 +1,20 @@
+package com.lewin.luxanaipark.handler;
+
+/**
+ * 神目相机指令/响应类型
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum DeepcamAction {
+    LOGIN("login"),
+    GET_PERSON_COUNT("get_person_count"),
+    CLEAR_PERSON_COUNT("clear_person_count"),
+    UNKNOWN(null);
+
+    final char[] text;
+
+    DeepcamAction(String text) {
+        this.text = text == null ? null : text.toCharArray();
+    }
+}
@@ -0,0 +1,134 @@
+package com.lewin.luxanaipark.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单个连接的在途指令表.
+ * <p>
+ * 神目相机响应不携带请求 id, 同一 action 的响应按发送顺序返回, 因此每种 action 维护一个先进先出队列.
+ * 指令在写出前登记, 响应由 {@link PassengerFlowHandler} 完成, 超时由共享的 {@link Timer} 触发.
+ * 所有状态只在连接所属 event loop 中修改, 无需加锁.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public final class DeepcamCommandTable {
+
+    public static final AttributeKey<DeepcamCommandTable> KEY = AttributeKey.valueOf(DeepcamCommandTable.class.getName());
+
+    private final Channel channel;
+    private final Timer timer;
+    private final Map<DeepcamAction, ArrayDeque<Pending>> inflight = new EnumMap<>(DeepcamAction.class);
+
+    public DeepcamCommandTable(Channel channel, Timer timer) {
+        this.channel = channel;
+        this.timer = timer;
+    }
+
+    /**
+     * 发送指令并等待同类响应
+     *
+     * @param action  期望的响应类型
+     * @param command 指令报文, 所有权转移给本方法
+     * @param timeout 超时时间, 超时后连接被视为异常并断开
+     * @return 响应中的 ret 文本, ret 非字符串时为 null
+     */
+    public CompletableFuture<String> request(DeepcamAction action, ByteBuf command, long timeout, TimeUnit unit) {
+        var future = new CompletableFuture<String>();
+        channel.eventLoop().execute(() -> {
+            if (!channel.isActive()) {
+                command.release();
+                future.completeExceptionally(new ClosedChannelException());
+                return;
+            }
+
+            // 先登记再写出, 避免响应先于登记到达
+            var pending = new Pending(action, future);
+            inflight.computeIfAbsent(action, k -> new ArrayDeque<>()).addLast(pending);
+            pending.timeout = timer.newTimeout(t -> channel.eventLoop().execute(() -> expire(pending, timeout, unit)), timeout, unit);
+            channel.writeAndFlush(command).addListener(f -> {
+                if (!f.isSuccess()) {
+                    remove(pending);
+                    pending.timeout.cancel();
+                    future.completeExceptionally(f.cause());
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * 收到响应, 完成同类最早的在途指令
+     *
+     * @return 是否存在对应的在途指令
+     */
+    boolean complete(DeepcamAction action, String ret) {
+        var queue = inflight.get(action);
+        var pending = queue == null ? null : queue.pollFirst();
+        if (pending == null) {
+            return false;
+        }
+        pending.timeout.cancel();
+        pending.future.complete(ret);
+        return true;
+    }
+
+    /**
+     * 连接关闭, 所有在途指令失败
+     */
+    public void failAll() {
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(this::failAll);
+            return;
+        }
+        var cause = new ClosedChannelException();
+        for (var queue : inflight.values()) {
+            Pending pending;
+            while ((pending = queue.pollFirst()) != null) {
+                pending.timeout.cancel();
+                pending.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void expire(Pending pending, long timeout, TimeUnit unit) {
+        if (!remove(pending)) {
+            return;
+        }
+        pending.future.completeExceptionally(new TimeoutException(
+                "指令[%s]响应超时(%dms)".formatted(pending.action, unit.toMillis(timeout))));
+        log.warn("[{}]指令[{}]响应超时，断开连接", channel.remoteAddress(), pending.action);
+        channel.close();
+    }
+
+    private boolean remove(Pending pending) {
+        var queue = inflight.get(pending.action);
+        return queue != null && queue.remove(pending);
+    }
+
+    private static final class Pending {
+
+        private final DeepcamAction action;
+        private final CompletableFuture<String> future;
+        private Timeout timeout;
+
+        private Pending(DeepcamAction action, CompletableFuture<String> future) {
+            this.action = action;
+            this.future = future;
+        }
+    }
+}
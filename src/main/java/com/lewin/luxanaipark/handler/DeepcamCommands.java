@@ -0,0 +1,75 @@
+package com.lewin.luxanaipark.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 神目相机指令编码.
+ * <p>
+ * 固定指令预先编码为共享的只读 direct buffer, 发送时只创建轻量的 duplicate 视图; 带参数的指令直接编码到池化 buffer 中.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public final class DeepcamCommands {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final ByteBuf GET_PERSON_COUNT = fixed("""
+            {"action":"get_person_count"}
+            """);
+
+    private static final ByteBuf CLEAR_PERSON_COUNT = fixed("""
+            {"action":"clear_person_count"}
+            """);
+
+    private DeepcamCommands() {
+    }
+
+    /**
+     * @return 人数查询指令, 写出后由 netty 释放
+     */
+    public static ByteBuf getPersonCount() {
+        return GET_PERSON_COUNT.retainedDuplicate();
+    }
+
+    /**
+     * @return 人数清空指令, 写出后由 netty 释放
+     */
+    public static ByteBuf clearPersonCount() {
+        return CLEAR_PERSON_COUNT.retainedDuplicate();
+    }
+
+    /**
+     * 登录指令
+     *
+     * @param alloc 连接所属的 {@link ByteBufAllocator}
+     */
+    public static ByteBuf login(ByteBufAllocator alloc, String userName, String pwd) {
+        var buf = alloc.buffer(64);
+        try (var generator = JSON_FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(buf))) {
+            generator.writeStartObject();
+            generator.writeStringField("action", "login");
+            generator.writeStringField("user_name", userName);
+            generator.writeStringField("pwd", pwd);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            buf.release();
+            throw new IllegalStateException(e);
+        }
+        return buf;
+    }
+
+    private static ByteBuf fixed(String s) {
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        var buf = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+        return Unpooled.unreleasableBuffer(buf.asReadOnly());
+    }
+}
@@ -0,0 +1,32 @@
+package com.lewin.luxanaipark.handler;
+
+/**
+ * 神目相机响应报文, 由 {@link DeepcamResponseDecoder} 原地填充并在同一连接内复用.
+ * <p>
+ * 仅由所属连接的 event loop 访问, 无需同步.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class DeepcamResponse {
+
+    DeepcamAction action;
+
+    /** ret 为字符串时的取值, 如 login successfully, ok */
+    String ret;
+
+    /** ret 为对象且包含 in/out 时为 true */
+    boolean hasCount;
+
+    int in;
+
+    int out;
+
+    void reset() {
+        action = null;
+        ret = null;
+        hasCount = false;
+        in = 0;
+        out = 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lewin.luxanaipark.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 神目相机响应流式解码器.
+ * <p>
+ * 直接从 {@link ByteBuf} 读取 token, 不构建中间 String 与 JsonNode 树; action 按字符比较匹配, in/out 以 int 读取.
+ * 字段顺序不做要求.
+ * <p>
+ * in/out 与原先绑定到 Integer 时的取值规则一致: 接受整数、小数(截断取整)以及纯数字字符串(如 "12"),
+ * 其余取值视为缺失.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class DeepcamResponseDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final DeepcamAction[] ACTIONS = DeepcamAction.values();
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private DeepcamResponseDecoder() {
+    }
+
+    /**
+     * @param buf 完整的 json 对象报文, 读索引不会被修改
+     * @param out 解码结果
+     * @return 报文是否为合法 json 对象且包含 action
+     */
+    static boolean decode(ByteBuf buf, DeepcamResponse out) throws IOException {
+        out.reset();
+        try (var parser = createParser(buf)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var name = parser.getCurrentName();
+                var token = parser.nextToken();
+                switch (name) {
+                    case "action" -> out.action = token == JsonToken.VALUE_STRING ? matchAction(parser) : DeepcamAction.UNKNOWN;
+                    case "ret" -> readRet(parser, token, out);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return out.action != null;
+    }
+
+    private static JsonParser createParser(ByteBuf buf) throws IOException {
+        if (buf.hasArray()) {
+            return JSON_FACTORY.createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        }
+        return JSON_FACTORY.createParser((InputStream) new ByteBufInputStream(buf.duplicate()));
+    }
+
+    private static void readRet(JsonParser parser, JsonToken token, DeepcamResponse out) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            out.ret = parser.getText();
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        var hasIn = false;
+        var hasOut = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var name = parser.getCurrentName();
+            var t = parser.nextToken();
+            if ("in".equals(name)) {
+                var value = readCount(parser, t);
+                if (value != INVALID) {
+                    out.in = (int) value;
+                    hasIn = true;
+                }
+            } else if ("out".equals(name)) {
+                var value = readCount(parser, t);
+                if (value != INVALID) {
+                    out.out = (int) value;
+                    hasOut = true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        out.hasCount = hasIn && hasOut;
+    }
+
+    /**
+     * @return int 范围内的计数, 无法解析时返回 {@link #INVALID}
+     */
+    private static long readCount(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                var value = token == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : (long) parser.getDoubleValue();
+                yield value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : INVALID;
+            }
+            case VALUE_STRING -> parseInt(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            default -> {
+                parser.skipChildren();
+                yield INVALID;
+            }
+        };
+    }
+
+    /**
+     * 解析可带正负号、前后空白的十进制整数字符串, 不创建 String
+     */
+    private static long parseInt(char[] chars, int offset, int len) {
+        var start = offset;
+        var end = offset + len;
+        while (start < end && Character.isWhitespace(chars[start])) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(chars[end - 1])) {
+            end--;
+        }
+        if (start == end) {
+            return INVALID;
+        }
+
+        var negative = chars[start] == '-';
+        if (negative || chars[start] == '+') {
+            start++;
+        }
+        if (start == end || end - start > 10) {
+            return INVALID;
+        }
+        long value = 0;
+        for (var i = start; i < end; i++) {
+            var c = chars[i];
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : INVALID;
+    }
+
+    private static DeepcamAction matchAction(JsonParser parser) throws IOException {
+        var chars = parser.getTextCharacters();
+        var offset = parser.getTextOffset();
+        var len = parser.getTextLength();
+        for (var action : ACTIONS) {
+            var text = action.text;
+            if (text == null || text.length != len) {
+                continue;
+            }
+            var match = true;
+            for (int i = 0; i < len; i++) {
+                if (text[i] != chars[offset + i]) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return action;
+            }
+        }
+        return DeepcamAction.UNKNOWN;
+    }
+}
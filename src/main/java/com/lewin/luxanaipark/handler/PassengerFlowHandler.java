@@ -1,14 +1,11 @@
 package com.lewin.luxanaipark.handler;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.lewin.commons.entity.Tuple2;
-import com.lewin.commons.entity.Tuples;
-import com.lewin.commons.utils.JSON;
+import com.lewin.luxanaipark.config.DeepcamProperties;
 import com.lewin.luxanaipark.entity.CameraInfo;
-import com.lewin.luxanaipark.entity.Traffic;
-import com.lewin.luxanaipark.job.TrafficJob;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.SceneReadTracker;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
@@ -17,12 +14,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 客流数据处理器
@@ -33,25 +24,24 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class PassengerFlowHandler extends SimpleChannelInboundHandler<ByteBuf> {
 
-    public static final Map<String, List<Tuple2<CameraInfo, Traffic>>> DEEPCAM_TRAFFIC_INFO_MAP = new ConcurrentHashMap<>();
     private final CameraInfo cameraInfo;
+    private final CameraCounter counter;
+    private final DeepcamResponse response = new DeepcamResponse();
     private final String sceneName;
-
-    public PassengerFlowHandler(String sceneName, CameraInfo cameraInfo) {
-        this.sceneName = sceneName;
+    private final SceneReadTracker sceneReadTracker;
+    private final DeepcamProperties deepcamProperties;
+    private AdaptivePoller poller;
+
+    public PassengerFlowHandler(TrafficRegistry trafficRegistry,
+                                SceneReadTracker sceneReadTracker,
+                                DeepcamProperties deepcamProperties,
+                                String sceneName,
+                                CameraInfo cameraInfo) {
         this.cameraInfo = cameraInfo;
-
-        var alreadyExistFlag = false;
-        List<Tuple2<CameraInfo, Traffic>> list = DEEPCAM_TRAFFIC_INFO_MAP.computeIfAbsent(sceneName, k -> new ArrayList<>());
-        for (Tuple2<CameraInfo, Traffic> tuple2 : list) {
-            if (cameraInfo == tuple2.t0()) {
-                alreadyExistFlag = true;
-                break;
-            }
-        }
-        if (!alreadyExistFlag) {
-            list.add(Tuples.of(cameraInfo, new Traffic().setIn(0).setOut(0)));
-        }
+        this.sceneName = sceneName;
+        this.sceneReadTracker = sceneReadTracker;
+        this.deepcamProperties = deepcamProperties;
+        this.counter = trafficRegistry.register(sceneName, cameraInfo);
     }
 
     @Override
@@ -59,94 +49,74 @@ public class PassengerFlowHandler extends SimpleChannelInboundHandler<ByteBuf> {
         log.info("成功连接至[{}:{}]", cameraInfo.getIp(), cameraInfo.getPort());
 
         // 发起登录报文
-        var signInObj = JSON.createObjectNode()
-                .put("action", "login")
-                .put("user_name", cameraInfo.getUname())
-                .put("pwd", cameraInfo.getPasswd());
-        ctx.writeAndFlush(Unpooled.wrappedBuffer(JSON.writeValueAsBytes(signInObj)));
+        ctx.writeAndFlush(DeepcamCommands.login(ctx.alloc(), cameraInfo.getUname(), cameraInfo.getPasswd()));
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
-        var str = msg.toString(StandardCharsets.UTF_8);
-        var json = JSON.readTree(str);
+        if (log.isDebugEnabled()) {
+            log.debug("收到[{}]响应: {}", cameraInfo.key(), msg.toString(StandardCharsets.UTF_8));
+        }
 
         // 捕获 action
-        var action = Optional.of(json)
-                .map(t -> t.get("action"))
-                .map(JsonNode::asText)
-                .orElse(null);
-        if (action == null) {
-            log.warn("响应 action 为空: {}", str);
+        if (!DeepcamResponseDecoder.decode(msg, response)) {
+            log.warn("响应 action 为空: {}", msg.toString(StandardCharsets.UTF_8));
             return;
         }
-        switch (action) {
-            case "login" -> {
-                var ret = Optional.of(json)
-                        .map(t -> t.get("ret"))
-                        .map(JsonNode::asText)
-                        .orElse(null);
-                if ("login successfully".equals(ret)) {
+        switch (response.action) {
+            case LOGIN -> {
+                if ("login successfully".equals(response.ret)) {
                     // 登录成功
                     log.info("登入[{}]成功", cameraInfo.key());
 
-                    // 启动定时任务，发送人数查询指令
-                    ctx.executor().scheduleAtFixedRate(() -> {
-                        // 发起客流查询指令
-                        if (ctx.isRemoved()) {
-                            return;
-                        }
-                        var s = """
-                                {"action":"get_person_count"}
-                                """;
-                        ctx.writeAndFlush(Unpooled.wrappedBuffer(s.getBytes(StandardCharsets.UTF_8)));
-                    }, 0, 500, TimeUnit.MILLISECONDS);
+                    // 启动自适应轮询，发送人数查询指令
+                    stopPoller();
+                    poller = new AdaptivePoller(ctx, sceneReadTracker, sceneName, deepcamProperties);
+                    poller.start();
                 } else {
-                    log.info("登入[{}]失败, 响应：{}", cameraInfo.key(), str);
+                    log.info("登入[{}]失败, 响应：{}", cameraInfo.key(), msg.toString(StandardCharsets.UTF_8));
                 }
             }
-            case "get_person_count" -> {
-                var now = Optional.of(json)
-                        .map(t -> t.get("ret"))
-                        .map(t -> JSON.treeToValue(t, Traffic.class))
-                        .orElse(null);
-                if (now == null) {
-                    log.warn("客流量数据获取失败，响应：{}", str);
+            case GET_PERSON_COUNT -> {
+                if (!response.hasCount) {
+                    log.warn("客流量数据获取失败，响应：{}", msg.toString(StandardCharsets.UTF_8));
                     return;
                 }
 
-                var list = DEEPCAM_TRAFFIC_INFO_MAP.get(sceneName);
-                var hasElement = false;
-                for (var tuple2 : list) {
-                    if (tuple2.t0().equals(this.cameraInfo)) {
-                        hasElement = true;
-                        tuple2.t1().setIn(now.getIn()).setOut(now.getOut());
-                    }
-                }
-                if (!hasElement) {
-                    list.add(new Tuple2<>(cameraInfo, now));
+                var changed = counter.set(response.in, response.out);
+                if (poller != null) {
+                    poller.onCount(changed);
                 }
             }
-            case "clear_person_count" -> {
-                var ret = Optional.of(json)
-                        .map(t -> t.get("ret"))
-                        .map(JsonNode::asText)
-                        .orElse(null);
-                if ("ok".equalsIgnoreCase(ret)) {
+            case CLEAR_PERSON_COUNT -> {
+                if ("ok".equalsIgnoreCase(response.ret)) {
                     log.debug("[{}-[{}]]客流数据清空成功", cameraInfo.getName(), cameraInfo.key());
-                    TrafficJob.FUTURE_TASK_MAP.computeIfPresent(cameraInfo.key(), (s, t) -> {
-                        t.complete(true);
-                        return t;
-                    });
                 } else {
                     log.warn("[{}-[{}]]客流数据清空失败", cameraInfo.getName(), cameraInfo.key());
-                    TrafficJob.FUTURE_TASK_MAP.computeIfPresent(cameraInfo.key(), (s, t) -> {
-                        t.complete(false);
-                        return t;
-                    });
+                }
+                if (!ctx.channel().attr(DeepcamCommandTable.KEY).get().complete(response.action, response.ret)) {
+                    log.debug("[{}]清空响应无对应的在途指令", cameraInfo.key());
                 }
             }
-            default -> log.warn("Unknown action: {}", str);
+            default -> log.warn("Unknown action: {}", msg.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stopPoller();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        stopPoller();
+    }
+
+    private void stopPoller() {
+        if (poller != null) {
+            poller.stop();
+            poller = null;
         }
     }
 
@@ -0,0 +1,14 @@
+package com.lewin.luxanaipark.history;
+
+/**
+ * 单台相机的客流历史, 三个数组按下标一一对应; 区间内无采样的点不返回
+ *
+ * @param name 相机名称
+ * @param time 时间戳(毫秒), 为各区间的结束时间
+ * @param in   进
+ * @param out  出
+ * @author Jun
+ * @since 1.0.0
+ */
+public record CameraHistory(String name, long[] time, int[] in, int[] out) {
+}
@@ -0,0 +1,96 @@
+package com.lewin.luxanaipark.history;
+
+import com.lewin.luxanaipark.traffic.CameraCounter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定容量的客流采样环形缓冲.
+ * <p>
+ * 时间按分辨率切分为桶, 桶号对容量取模得到槽位; 每个槽位保存桶号与打包后的进出计数(见 {@link CameraCounter#pack(int, int)}),
+ * 同一桶内后写入的采样覆盖先前的采样. 全部使用 long 数组, 不为单个采样创建对象.
+ * <p>
+ * 单线程写入, 多线程读取. 写入时先将桶号置为 -1 再写计数、最后写桶号, 读取方前后两次读到相同桶号才认为计数有效.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public final class HistoryRing {
+
+    /** 区间内无采样 */
+    public static final long EMPTY = Long.MIN_VALUE;
+
+    private final long resolutionMillis;
+    private final int capacity;
+    private final AtomicLongArray buckets;
+    private final AtomicLongArray values;
+
+    public HistoryRing(long resolutionMillis, int capacity) {
+        this.resolutionMillis = resolutionMillis;
+        this.capacity = capacity;
+        this.buckets = new AtomicLongArray(capacity);
+        this.values = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buckets.set(i, -1);
+        }
+    }
+
+    public long resolutionMillis() {
+        return resolutionMillis;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 缓冲覆盖的时长(毫秒)
+     */
+    public long spanMillis() {
+        return resolutionMillis * capacity;
+    }
+
+    public void record(long timestamp, long packed) {
+        var bucket = timestamp / resolutionMillis;
+        var slot = slot(bucket);
+        if (buckets.get(slot) == bucket) {
+            values.set(slot, packed);
+            return;
+        }
+        buckets.set(slot, -1);
+        values.set(slot, packed);
+        buckets.set(slot, bucket);
+    }
+
+    /**
+     * 查找时间区间 (after, atOrBefore] 内最新的采样
+     *
+     * @return 打包后的计数, 区间内无采样时返回 {@link #EMPTY}
+     */
+    public long latest(long after, long atOrBefore) {
+        var last = Math.floorDiv(atOrBefore, resolutionMillis);
+        var first = Math.max(Math.floorDiv(after, resolutionMillis) + 1, last - capacity + 1);
+        for (var bucket = last; bucket >= first; bucket--) {
+            var slot = slot(bucket);
+            if (buckets.get(slot) != bucket) {
+                continue;
+            }
+            var value = values.get(slot);
+            if (buckets.get(slot) == bucket) {
+                return value;
+            }
+        }
+        return EMPTY;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) capacity);
+    }
+
+    /**
+     * @return 缓冲占用的内存(字节, 不含对象头)
+     */
+    public static long bytes(int capacity) {
+        return 16L * capacity;
+    }
+}
@@ -0,0 +1,18 @@
+package com.lewin.luxanaipark.history;
+
+import java.util.List;
+
+/**
+ * 场景客流历史
+ *
+ * @param name       场景名称
+ * @param from       起始时间(毫秒)
+ * @param to         结束时间(毫秒)
+ * @param step       点间隔(毫秒)
+ * @param resolution 所用缓冲的采样间隔(毫秒)
+ * @param cameras    各相机历史
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneHistory(String name, long from, long to, long step, long resolution, List<CameraHistory> cameras) {
+}
@@ -0,0 +1,149 @@
+package com.lewin.luxanaipark.history;
+
+import com.lewin.commons.exception.LewinException;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.HistoryProperties;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客流历史存储.
+ * <p>
+ * 每台相机持有精细、粗略两个 {@link HistoryRing}, 容量在启动时由配置确定, 运行期间内存占用不变.
+ * 采样线程按精细分辨率读取所有计数器写入两个缓冲(粗略缓冲同一桶内以最后一次采样为准), 相机长时间无变化也能查询到数据.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TrafficHistoryStore implements DisposableBean {
+
+    private final Map<String, Rings> rings = new ConcurrentHashMap<>();
+    private final TrafficRegistry trafficRegistry;
+    private final HistoryProperties properties;
+    private final int fineCapacity;
+    private final int coarseCapacity;
+    private final ScheduledExecutorService sampler;
+    private int registryGeneration = -1;
+
+    public TrafficHistoryStore(BizProperties bizProperties, TrafficRegistry trafficRegistry) {
+        this.trafficRegistry = trafficRegistry;
+        this.properties = bizProperties.getHistory();
+
+        var fine = properties.getFineResolution().toMillis();
+        var coarse = properties.getCoarseResolution().toMillis();
+        if (fine <= 0 || coarse < fine || coarse % fine != 0) {
+            throw new IllegalArgumentException("客流历史采样间隔配置非法: fine[%d] coarse[%d]".formatted(fine, coarse));
+        }
+        this.fineCapacity = (int) Math.max(1, properties.getFineRetention().toMillis() / fine);
+        this.coarseCapacity = (int) Math.max(1, properties.getCoarseRetention().toMillis() / coarse);
+        log.info("客流历史每台相机占用[{}]字节", HistoryRing.bytes(fineCapacity) + HistoryRing.bytes(coarseCapacity));
+
+        this.sampler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("traffic-history", true));
+        this.sampler.scheduleAtFixedRate(this::sample, fine - System.currentTimeMillis() % fine, fine, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查询场景内各相机的客流历史, 每个点取 (t - step, t] 内最新的采样
+     *
+     * @param sceneName 场景名称
+     * @param from      起始时间(毫秒)
+     * @param to        结束时间(毫秒), 为空时取当前时间
+     * @param step      点间隔(毫秒), 为空或小于所用缓冲的采样间隔时取采样间隔
+     * @return 场景不存在时返回 null
+     */
+    public SceneHistory query(String sceneName, long from, Long to, Long step) {
+        var counters = trafficRegistry.scene(sceneName);
+        if (counters == null) {
+            return null;
+        }
+        var now = System.currentTimeMillis();
+        var end = to == null ? now : Math.min(to, now);
+        if (from < 0 || from >= end) {
+            throw new LewinException("查询区间非法: from[{}] to[{}]", from, end);
+        }
+
+        // 精细缓冲能覆盖起始时间时使用精细缓冲, 步长小于所用缓冲的分辨率时按分辨率取点
+        var fineResolution = properties.getFineResolution().toMillis();
+        var useFine = now - from <= fineResolution * fineCapacity;
+        var resolution = useFine ? fineResolution : properties.getCoarseResolution().toMillis();
+        var interval = step == null ? resolution : Math.max(step, resolution);
+
+        var points = (end - from + interval - 1) / interval;
+        if (points > properties.getMaxPoints()) {
+            throw new LewinException("查询点数[{}]超过上限[{}], 请增大 step", points, properties.getMaxPoints());
+        }
+
+        var result = new ArrayList<CameraHistory>(counters.size());
+        var time = new long[(int) points];
+        var in = new int[(int) points];
+        var out = new int[(int) points];
+        for (var counter : counters) {
+            var r = rings.get(counter.key());
+            if (r == null) {
+                result.add(new CameraHistory(counter.cameraInfo().getName(), new long[0], new int[0], new int[0]));
+                continue;
+            }
+            var ring = useFine ? r.fine : r.coarse;
+            var n = 0;
+            for (long t = Math.min(from + interval, end); ; t = Math.min(t + interval, end)) {
+                var packed = ring.latest(t - interval, t);
+                if (packed != HistoryRing.EMPTY) {
+                    time[n] = t;
+                    in[n] = CameraCounter.in(packed);
+                    out[n] = CameraCounter.out(packed);
+                    n++;
+                }
+                if (t >= end) {
+                    break;
+                }
+            }
+            result.add(new CameraHistory(counter.cameraInfo().getName(),
+                    Arrays.copyOf(time, n), Arrays.copyOf(in, n), Arrays.copyOf(out, n)));
+        }
+        return new SceneHistory(sceneName, from, end, interval, resolution, result);
+    }
+
+    private void sample() {
+        try {
+            var generation = trafficRegistry.generation();
+            if (generation != registryGeneration) {
+                registryGeneration = generation;
+                rings.keySet().removeIf(key -> trafficRegistry.byKey(key) == null);
+            }
+
+            var now = System.currentTimeMillis();
+            for (var counter : trafficRegistry.all()) {
+                var r = rings.computeIfAbsent(counter.key(), k -> new Rings(
+                        new HistoryRing(properties.getFineResolution().toMillis(), fineCapacity),
+                        new HistoryRing(properties.getCoarseResolution().toMillis(), coarseCapacity)));
+                var packed = counter.packed();
+                r.fine.record(now, packed);
+                r.coarse.record(now, packed);
+            }
+        } catch (Throwable t) {
+            log.error("客流历史采样异常: " + t.getMessage(), t);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sampler.shutdownNow();
+    }
+
+    private record Rings(HistoryRing fine, HistoryRing coarse) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.lewin.luxanaipark.isapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.lewin.commons.exception.LewinException;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.IsapiProperties;
+import com.lewin.luxanaipark.service.IHCNetService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 海康 ISAPI 透传客户端, 封装 {@code NET_DVR_STDXMLConfig}.
+ * <p>
+ * 每次调用从有界池中租用一组预分配的 native 缓冲区(请求 url/请求体、响应体、状态及输入输出结构体),
+ * 用完归还复用, 池满时等待; 响应只按 SDK 返回的长度读取. 缓冲区分配与 SDK 调用由 {@link IsapiTransport} 完成.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class IsapiClient implements DisposableBean {
+
+    private static final XmlMapper XML_MAPPER = new XmlMapper();
+
+    private final IsapiTransport transport;
+    private final IsapiProperties properties;
+    private final BlockingQueue<Lease> pool;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private volatile boolean closed;
+
+    @Autowired
+    public IsapiClient(IHCNetService hcNetService, BizProperties bizProperties) {
+        this(new SdkIsapiTransport(hcNetService), bizProperties.getIsapi());
+    }
+
+    IsapiClient(IsapiTransport transport, IsapiProperties properties) {
+        this.transport = transport;
+        this.properties = properties;
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, properties.getPoolSize()));
+    }
+
+    public IsapiResponse get(int userId, String path) {
+        return execute(userId, IsapiMethod.GET, path, null);
+    }
+
+    public IsapiResponse put(int userId, String path, String body) {
+        return execute(userId, IsapiMethod.PUT, path, body);
+    }
+
+    public IsapiResponse post(int userId, String path, String body) {
+        return execute(userId, IsapiMethod.POST, path, body);
+    }
+
+    public IsapiResponse delete(int userId, String path) {
+        return execute(userId, IsapiMethod.DELETE, path, null);
+    }
+
+    /**
+     * 执行 ISAPI 请求, 阻塞直到 SDK 返回
+     *
+     * @param userId 设备登录 id
+     * @param method 请求方法
+     * @param path   请求路径, 如 /ISAPI/System/deviceInfo
+     * @param body   请求体, 可为 null
+     */
+    public IsapiResponse execute(int userId, IsapiMethod method, String path, String body) {
+        return execute(userId, method, path, body, properties.getRecvTimeout());
+    }
+
+    /**
+     * 执行 ISAPI 请求, 阻塞直到 SDK 返回
+     *
+     * @param recvTimeout 本次调用的 SDK 接收超时, 0 表示使用 SDK 默认值
+     */
+    public IsapiResponse execute(int userId, IsapiMethod method, String path, String body, Duration recvTimeout) {
+        var lease = acquire();
+        try {
+            return lease.execute(userId, method, path, body, recvTimeout);
+        } finally {
+            release(lease);
+        }
+    }
+
+    /**
+     * @return 已分配的缓冲区组数量
+     */
+    public int allocated() {
+        return allocated.get();
+    }
+
+    private Lease acquire() {
+        if (closed) {
+            throw new LewinException("isapi client closed");
+        }
+        var lease = pool.poll();
+        if (lease != null) {
+            return lease;
+        }
+
+        // 池未满时直接分配
+        var n = allocated.get();
+        while (n < Math.max(1, properties.getPoolSize())) {
+            if (allocated.compareAndSet(n, n + 1)) {
+                return new Lease();
+            }
+            n = allocated.get();
+        }
+
+        try {
+            lease = pool.poll(properties.getLeaseTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LewinException(e);
+        }
+        if (lease == null) {
+            throw new LewinException("等待 ISAPI 缓冲区超时: {}", properties.getLeaseTimeout());
+        }
+        return lease;
+    }
+
+    private void release(Lease lease) {
+        if (closed || !pool.offer(lease)) {
+            lease.close();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        Lease lease;
+        while ((lease = pool.poll()) != null) {
+            lease.close();
+        }
+    }
+
+    private static int statusCode(String status) {
+        if (status.isEmpty()) {
+            return -1;
+        }
+        try {
+            JsonNode node = XML_MAPPER.readTree(status);
+            var code = node == null ? null : node.get("statusCode");
+            return code == null ? -1 : code.asInt(-1);
+        } catch (IOException e) {
+            log.warn("ResponseStatus 解析失败: {}", status);
+            return -1;
+        }
+    }
+
+    /**
+     * 一组可复用的调用缓冲区, 同一时刻只被一个调用持有
+     */
+    private final class Lease {
+
+        private final IsapiTransport.Exchange exchange =
+                transport.open(properties.getOutBufferSize(), properties.getStatusBufferSize());
+
+        private IsapiResponse execute(int userId, IsapiMethod method, String path, String body, Duration recvTimeout) {
+            var url = (method.name() + " " + path).getBytes(StandardCharsets.UTF_8);
+            var content = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+            if (!exchange.call(userId, url, content, (int) recvTimeout.toMillis())) {
+                var err = exchange.lastError();
+                log.warn("ISAPI[{} {}]调用失败, 错误号: {}", method, path, err);
+                return IsapiResponse.sdkFailed(err);
+            }
+
+            var responseBody = new String(exchange.response(), StandardCharsets.UTF_8);
+            var status = exchange.status().trim();
+            return new IsapiResponse(0, statusCode(status), status, responseBody);
+        }
+
+        private void close() {
+            allocated.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
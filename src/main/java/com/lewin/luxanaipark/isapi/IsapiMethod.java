@@ -0,0 +1,11 @@
+package com.lewin.luxanaipark.isapi;
+
+/**
+ * ISAPI 请求方法
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum IsapiMethod {
+    GET, PUT, POST, DELETE
+}
@@ -0,0 +1,28 @@
+package com.lewin.luxanaipark.isapi;
+
+/**
+ * ISAPI 响应
+ *
+ * @param sdkError   SDK 调用失败时的错误码, 成功时为 0
+ * @param statusCode ResponseStatus 中的 statusCode, 无状态信息时为 -1
+ * @param status     ResponseStatus 原文
+ * @param body       响应体, 长度以 SDK 返回的 dwReturnedXMLSize 为准
+ * @author Jun
+ * @since 1.0.0
+ */
+public record IsapiResponse(int sdkError, int statusCode, String status, String body) {
+
+    /** ResponseStatus statusCode: 1 表示 OK */
+    public static final int STATUS_OK = 1;
+
+    static IsapiResponse sdkFailed(int sdkError) {
+        return new IsapiResponse(sdkError, -1, null, null);
+    }
+
+    /**
+     * SDK 调用成功, 且设备未返回失败状态
+     */
+    public boolean isOk() {
+        return sdkError == 0 && (statusCode == -1 || statusCode == STATUS_OK);
+    }
+}
@@ -0,0 +1,54 @@
+package com.lewin.luxanaipark.isapi;
+
+/**
+ * ISAPI 透传的底层调用, 负责分配 native 缓冲区并调用 {@code NET_DVR_STDXMLConfig}.
+ * <p>
+ * {@link IsapiClient} 只负责池化与结果解析, 测试时替换为不依赖 SDK 动态库的实现.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+interface IsapiTransport {
+
+    /**
+     * 分配一组可复用的调用缓冲区
+     *
+     * @param outBufferSize    响应体缓冲区大小
+     * @param statusBufferSize 状态缓冲区大小
+     */
+    Exchange open(int outBufferSize, int statusBufferSize);
+
+    /**
+     * 一组调用缓冲区, 同一时刻只被一个调用持有
+     */
+    interface Exchange {
+
+        /**
+         * 执行一次调用
+         *
+         * @param userId        设备登录 id
+         * @param url           请求行, 如 {@code GET /ISAPI/System/deviceInfo}
+         * @param body          请求体, 可为 null
+         * @param recvTimeoutMs SDK 接收超时毫秒数, 0 表示使用 SDK 默认值
+         * @return SDK 调用是否成功
+         */
+        boolean call(int userId, byte[] url, byte[] body, int recvTimeoutMs);
+
+        /**
+         * @return 调用失败时的 SDK 错误号
+         */
+        int lastError();
+
+        /**
+         * @return 上次成功调用返回的响应体, 只包含 SDK 返回的长度
+         */
+        byte[] response();
+
+        /**
+         * @return 上次成功调用返回的 ResponseStatus 报文
+         */
+        String status();
+
+        void close();
+    }
+}
@@ -0,0 +1,115 @@
+package com.lewin.luxanaipark.isapi;
+
+import com.lewin.luxanaipark.jna.HCNetSDK;
+import com.lewin.luxanaipark.service.IHCNetService;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于海康 SDK 的 {@link IsapiTransport}, 每组缓冲区预分配请求 url/请求体、响应体、状态及输入输出结构体
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class SdkIsapiTransport implements IsapiTransport {
+
+    /** url 及请求体的初始缓冲区大小, 不足时按需扩容 */
+    private static final int INITIAL_REQUEST_SIZE = 4096;
+
+    private final IHCNetService hcNetService;
+
+    SdkIsapiTransport(IHCNetService hcNetService) {
+        this.hcNetService = hcNetService;
+    }
+
+    @Override
+    public Exchange open(int outBufferSize, int statusBufferSize) {
+        return new SdkExchange(outBufferSize, statusBufferSize);
+    }
+
+    private final class SdkExchange implements Exchange {
+
+        private final HCNetSDK.NET_DVR_XML_CONFIG_INPUT input = new HCNetSDK.NET_DVR_XML_CONFIG_INPUT();
+        private final HCNetSDK.NET_DVR_XML_CONFIG_OUTPUT output = new HCNetSDK.NET_DVR_XML_CONFIG_OUTPUT();
+        private final Memory outBuffer;
+        private final Memory statusBuffer;
+        private Memory requestBuffer = new Memory(INITIAL_REQUEST_SIZE);
+        private int lastError;
+
+        private SdkExchange(int outBufferSize, int statusBufferSize) {
+            outBuffer = new Memory(outBufferSize);
+            statusBuffer = new Memory(statusBufferSize);
+            input.dwSize = input.size();
+            output.dwSize = output.size();
+            output.lpOutBuffer = outBuffer;
+            output.dwOutBufferSize = (int) outBuffer.size();
+            output.lpStatusBuffer = statusBuffer;
+            // 保留末尾一个字节作为字符串结束符
+            output.dwStatusSize = (int) statusBuffer.size() - 1;
+        }
+
+        @Override
+        public boolean call(int userId, byte[] url, byte[] body, int recvTimeoutMs) {
+            // url 与请求体写入同一块缓冲区, 均以 0 结尾
+            var required = url.length + 1 + (body == null ? 0 : body.length + 1);
+            if (requestBuffer.size() < required) {
+                requestBuffer.close();
+                requestBuffer = new Memory(Math.max(required, requestBuffer.size() * 2));
+            }
+            requestBuffer.write(0, url, 0, url.length);
+            requestBuffer.setByte(url.length, (byte) 0);
+            input.lpRequestUrl = requestBuffer;
+            input.dwRequestUrlLen = url.length;
+            if (body == null) {
+                input.lpInBuffer = null;
+                input.dwInBufferSize = 0;
+            } else {
+                var offset = url.length + 1;
+                requestBuffer.write(offset, body, 0, body.length);
+                requestBuffer.setByte(offset + body.length, (byte) 0);
+                input.lpInBuffer = requestBuffer.share(offset);
+                input.dwInBufferSize = body.length;
+            }
+            input.dwRecvTimeOut = recvTimeoutMs;
+            input.write();
+
+            output.dwReturnedXMLSize = 0;
+            output.write();
+            statusBuffer.setByte(0, (byte) 0);
+            statusBuffer.setByte(statusBuffer.size() - 1, (byte) 0);
+
+            var sdk = hcNetService.sdk();
+            if (!sdk.NET_DVR_STDXMLConfig(new NativeLong(userId), input.getPointer(), output.getPointer())) {
+                lastError = sdk.NET_DVR_GetLastError();
+                return false;
+            }
+            output.read();
+            return true;
+        }
+
+        @Override
+        public int lastError() {
+            return lastError;
+        }
+
+        @Override
+        public byte[] response() {
+            var returned = Math.min(Math.max(output.dwReturnedXMLSize, 0), output.dwOutBufferSize);
+            return returned == 0 ? new byte[0] : outBuffer.getByteArray(0, returned);
+        }
+
+        @Override
+        public String status() {
+            return statusBuffer.getString(0, StandardCharsets.UTF_8.name());
+        }
+
+        @Override
+        public void close() {
+            outBuffer.close();
+            statusBuffer.close();
+            requestBuffer.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.lewin.luxanaipark.jna;
+
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import com.lewin.luxanaipark.utils.CommonUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 定位报警设备对应的计数器.
+ * <p>
+ * 布防上传的报警携带有效用户 id, 直接命中注册表索引; 监听模式下只有序列号, 以原始序列号字节为键缓存裁剪结果,
+ * 避免每条报警都做一次 byte[] -> String 的转换. 注册表变更后缓存整体失效.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class AlarmDeviceResolver {
+
+    private final TrafficRegistry trafficRegistry;
+
+    /** 原始序列号哈希 -> 计数器 */
+    private final Map<Integer, SerialEntry> serialCache = new ConcurrentHashMap<>();
+    private volatile int serialCacheGeneration = -1;
+
+    AlarmDeviceResolver(TrafficRegistry trafficRegistry) {
+        this.trafficRegistry = trafficRegistry;
+    }
+
+    /**
+     * @param userId 登录用户 id, 无效时传负数
+     * @param serial SDK 上报的原始序列号字节, 只读
+     * @return 计数器, 无法关联时返回 null
+     */
+    CameraCounter resolve(int userId, byte[] serial) {
+        if (userId >= 0) {
+            var counter = trafficRegistry.byUserId(userId);
+            if (counter != null) {
+                return counter;
+            }
+        }
+
+        var generation = trafficRegistry.generation();
+        if (generation != serialCacheGeneration) {
+            serialCache.clear();
+            serialCacheGeneration = generation;
+        }
+        var hash = Arrays.hashCode(serial);
+        var entry = serialCache.get(hash);
+        if (entry != null && Arrays.equals(entry.raw(), serial)) {
+            return entry.counter();
+        }
+
+        var counter = trafficRegistry.bySn(CommonUtils.trimSerialNumber(serial));
+        if (counter != null) {
+            serialCache.put(hash, new SerialEntry(serial.clone(), counter));
+        }
+        return counter;
+    }
+
+    private record SerialEntry(byte[] raw, CameraCounter counter) {
+    }
+}
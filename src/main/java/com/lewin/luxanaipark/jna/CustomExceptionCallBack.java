@@ -1,10 +1,9 @@
 package com.lewin.luxanaipark.jna;
 
-import com.lewin.commons.entity.Tuple2;
 import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.device.DeviceSessionRegistry;
 import com.lewin.luxanaipark.entity.CameraInfo;
 import com.lewin.luxanaipark.service.impl.HCNetServiceImpl;
-import com.lewin.luxanaipark.utils.CommonUtils;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
 import lombok.extern.slf4j.Slf4j;
@@ -30,8 +29,10 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
 
     private final Set<Integer> offlineUserIdSet = Collections.synchronizedSet(new HashSet<>());
     private final Map<String, CameraInfo> allDeviceInfoMap;
+    private final DeviceSessionRegistry deviceSessionRegistry;
 
-    public CustomExceptionCallBack(BizProperties bizProperties) {
+    public CustomExceptionCallBack(BizProperties bizProperties, DeviceSessionRegistry deviceSessionRegistry) {
+        this.deviceSessionRegistry = deviceSessionRegistry;
         this.allDeviceInfoMap = bizProperties.getSceneList().stream()
                 .flatMap(scene -> scene.getCameraInfoList().stream())
                 .collect(Collectors.toMap(CameraInfo::getSn, Function.identity()));
@@ -43,7 +44,11 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
     public void invoke(int dwType, NativeLong lUserID, NativeLong lHandle, Pointer pUser) {
         final var userId = lUserID.intValue();
 
-        var t2 = HCNetServiceImpl.USER_ID_AND_DEVICE_INFO_MAP.get(userId);
+        var session = deviceSessionRegistry.byUserId(userId);
+        if (session == null) {
+            log.warn("异常类型[{}] USER_ID[{}] 无对应会话", Integer.toHexString(dwType), userId);
+            return;
+        }
         switch (dwType) {
             case 0x8000, 0x8006 -> {
                 // EXCEPTION_EXCHANGE 用户交互时异常（注册心跳超时，心跳间隔为2分钟） 8000
@@ -55,8 +60,8 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
                         "异常类型[{}] USER_ID[{}] 设备[{}:{}]离线",
                         Integer.toHexString(dwType),
                         userId,
-                        t2.t0(),
-                        CommonUtils.trimSerialNumber(t2.t1().sSerialNumber)
+                        session.key(),
+                        session.sn()
                 );
             }
             case 0x8016, 0x8017 -> {
@@ -67,8 +72,8 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
                 log.info("异常类型[{}] USER_ID[{}] 设备[{}:{}]上线",
                         Integer.toHexString(dwType),
                         userId,
-                        t2.t0(),
-                        CommonUtils.trimSerialNumber(t2.t1().sSerialNumber)
+                        session.key(),
+                        session.sn()
                 );
             }
             default -> {
@@ -87,12 +92,8 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
         // 2 设备注册后，各种原因离线
 
         // 1
-        Set<String> allreadyLoginDeviceSnSet = HCNetServiceImpl.USER_ID_AND_DEVICE_INFO_MAP.values().stream().map(Tuple2::t1)
-                .map(t -> t.sSerialNumber)
-                .map(CommonUtils::trimSerialNumber)
-                .collect(Collectors.toSet());
         for (var sn : allDeviceInfoMap.keySet()) {
-            if (!allreadyLoginDeviceSnSet.contains(sn)) {
+            if (deviceSessionRegistry.bySn(sn) == null) {
                 // 未登录设备
                 var connectInfo = allDeviceInfoMap.get(sn);
                 log.debug("设备[{}]未注册, ip[{}:{}]", sn, connectInfo.getIp(), connectInfo.getPort());
@@ -100,13 +101,11 @@ public class CustomExceptionCallBack implements HCNetSDK.FExceptionCallBack {
         }
 
         // 已注册设备处理
-        for (var userId : HCNetServiceImpl.USER_ID_AND_DEVICE_INFO_MAP.keySet()) {
-            var tuple2 = HCNetServiceImpl.USER_ID_AND_DEVICE_INFO_MAP.get(userId);
-            var deviceInfo = tuple2.t1();
-            if (offlineUserIdSet.contains(userId)) {
-                log.debug("设备[{}]离线, ip[{}]", CommonUtils.trimSerialNumber(deviceInfo.sSerialNumber), tuple2.t0());
+        for (var session : deviceSessionRegistry.all()) {
+            if (offlineUserIdSet.contains(session.userId())) {
+                log.debug("设备[{}]离线, ip[{}]", session.sn(), session.key());
             } else {
-                log.debug("设备[{}]在线, ip[{}]", CommonUtils.trimSerialNumber(deviceInfo.sSerialNumber), tuple2.t0());
+                log.debug("设备[{}]在线, ip[{}]", session.sn(), session.key());
 
                 // todo 发送在线状态
             }
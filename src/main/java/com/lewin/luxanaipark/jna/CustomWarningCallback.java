@@ -1,18 +1,19 @@
 package com.lewin.luxanaipark.jna;
 
-import com.lewin.commons.entity.Tuple4;
-import com.lewin.commons.entity.Tuples;
-import com.lewin.luxanaipark.service.impl.HCNetServiceImpl;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.device.ChannelTopologyCache;
+import com.lewin.luxanaipark.pipeline.EventPipeline;
+import com.lewin.luxanaipark.pipeline.PipelineStats;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
 import com.lewin.luxanaipark.utils.CommonUtils;
 import com.sun.jna.NativeLong;
 import com.sun.jna.Pointer;
-import com.sun.jna.Structure;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Arrays;
 
 /**
  * 定制化报警回调函数
@@ -22,77 +23,98 @@ import java.util.concurrent.BlockingQueue;
  */
 @Slf4j
 @Component
-public class CustomWarningCallback implements HCNetSDK.FMSGCallBack, Runnable {
+public class CustomWarningCallback implements HCNetSDK.FMSGCallBack, DisposableBean {
 
-    private final BlockingQueue<Tuple4<Integer, HCNetSDK.NET_DVR_ALARMER, Pointer, Integer>> queue = new ArrayBlockingQueue<>(100_000);
+    private final EventPipeline<AlarmEvent> pipeline;
+    private final ChannelTopologyCache channelTopologyCache;
+    private final AlarmDeviceResolver resolver;
 
-    private CustomWarningCallback() {
-        new Thread(this).start();
+    private CustomWarningCallback(TrafficRegistry trafficRegistry,
+                                  ChannelTopologyCache channelTopologyCache,
+                                  BizProperties bizProperties) {
+        this.resolver = new AlarmDeviceResolver(trafficRegistry);
+        this.channelTopologyCache = channelTopologyCache;
+        this.pipeline = EventPipeline.forSdkCallback("hik-alarm", bizProperties.getAlarmPipeline(),
+                AlarmEvent::device, AlarmEvent::coalesceKey, this::handle);
     }
 
     @Override
     public void invoke(NativeLong lCommand, HCNetSDK.NET_DVR_ALARMER pAlarmer,
                        Pointer pAlarmInfo, int dwBufLen, Pointer pUser) {
-        try {
-            queue.add(Tuples.of(lCommand.intValue(), pAlarmer, pAlarmInfo, dwBufLen));
-        } catch (IllegalStateException e) {
-            log.error(e.getMessage(), e);
+        // 结构体随回调结束失效, 只取出用户 id 与序列号, 不把 pAlarmer 带出回调线程
+        final var command = lCommand.intValue();
+        final var userId = pAlarmer.byUserIDValid == 1 && pAlarmer.lUserID != null ? pAlarmer.lUserID.intValue() : -1;
+        final var serial = pAlarmer.sSerialNumber;
+        final var device = userId >= 0 ? userId : Arrays.hashCode(serial);
+
+        // 报警缓冲区在回调返回后即被 SDK 释放, 必须在此同步读取
+        if (command == HCNetSDK.COMM_ALARM_PDC) {
+            if (!PdcAlarmReader.readable(pAlarmInfo, dwBufLen)) {
+                log.warn("客流报警数据长度异常[{}], 期望[{}]", dwBufLen, PdcAlarmReader.SIZE);
+                return;
+            }
+
+            // 通过用户 id 或序列号找到计数器, 只有无法关联时才解码序列号用于日志
+            var counter = resolver.resolve(userId, serial);
+            pipeline.publish(new AlarmEvent(command, device, userId, counter,
+                    counter == null ? CommonUtils.trimSerialNumber(serial) : null, PdcAlarmReader.mode(pAlarmInfo),
+                    PdcAlarmReader.enterNum(pAlarmInfo), PdcAlarmReader.leaveNum(pAlarmInfo)));
+        } else if (command == HCNetSDK.COMM_IPCCFG) {
+            pipeline.publish(new AlarmEvent(command, device, userId, null, null, (byte) 0, 0, 0));
+        } else {
+            pipeline.publish(new AlarmEvent(command, device, userId, null,
+                    CommonUtils.trimSerialNumber(serial), (byte) 0, 0, 0));
         }
     }
 
-    @Override
-    public void run() {
-        //noinspection InfiniteLoopStatement
-        while (true) {
-            try {
-                var poll = queue.poll();
-                if (poll == null) {
-                    poll = queue.take();
-                }
-
-                final var command = poll.t0();
-                final var pAlarmer = poll.t1();
-                final var pAlarmInfo = poll.t2();
-                final var deviceSn = CommonUtils.trimSerialNumber(pAlarmer.sSerialNumber);
-
-                if (command == 0x1103) {
-                    var alarm = new HCNetSDK.NET_DVR_PDC_ALRAM_INFO();
-                    pointer2Structure(pAlarmInfo, alarm);
-
-                    log.info("模式[{}] 进[{}] 出[{}]", alarm.byMode, alarm.dwEnterNum, alarm.dwLeaveNum);
-
-                    // 通过 deviceSn 找到 traffic
-                    HCNetServiceImpl.HIK_TRAFFIC_INFO_MAP.values()
-                            .stream()
-                            .flatMap(Collection::stream)
-                            .filter(t -> deviceSn.equals(t.t0().getSn()))
-                            .findFirst()
-                            .ifPresentOrElse(t -> {
-                                var preDwEnterNum = t.t1().getIn();
-                                var preDwLeaveNum = t.t1().getOut();
-                                if (alarm.dwEnterNum < preDwEnterNum && alarm.dwLeaveNum < preDwLeaveNum) {
-                                    log.debug("周期数据 进[{}] 出[{}]", alarm.dwEnterNum, alarm.dwLeaveNum);
-                                    return;
-                                }
-                                t.t1().setIn(alarm.dwEnterNum).setOut(alarm.dwLeaveNum);
-                            }, () -> {
-                                log.error("deviceSn[{}] 无法关联到 HCNetServiceImpl.HIK_TRAFFIC_INFO_MAP", deviceSn);
-                            });
-                } else {
-                    log.warn("设备[{}]事件[{}]被忽略", deviceSn, Integer.toHexString(command));
-                }
-            } catch (Throwable throwable) {
-                log.error(throwable.getMessage(), throwable);
+    private void handle(AlarmEvent event) {
+        final var command = event.command();
+
+        if (command == HCNetSDK.COMM_ALARM_PDC) {
+            log.info("模式[{}] 进[{}] 出[{}]", event.mode(), event.enterNum(), event.leaveNum());
+
+            var counter = event.counter();
+            if (counter == null) {
+                log.error("deviceSn[{}] 无法关联到 TrafficRegistry", event.serial());
+                return;
+            }
+            if (!counter.advance(event.enterNum(), event.leaveNum())) {
+                log.debug("周期数据 进[{}] 出[{}]", event.enterNum(), event.leaveNum());
             }
+        } else if (command == HCNetSDK.COMM_IPCCFG && event.userId() >= 0) {
+            // IPC 接入配置变更, 刷新通道启用缓存
+            channelTopologyCache.refreshAsync(event.userId());
+        } else {
+            log.warn("设备[{}]事件[{}]被忽略", event.serial(), Integer.toHexString(command));
         }
     }
 
-    private void pointer2Structure(Pointer p, Structure struct) {
-        struct.write();
-        var size = struct.size();
-        var structPointer = struct.getPointer();
-        structPointer.write(0, p.getByteArray(0, size), 0, size);
-        struct.read();
+    public PipelineStats stats() {
+        return pipeline.stats();
+    }
+
+    @Override
+    public void destroy() {
+        pipeline.shutdown();
+    }
+
+    /**
+     * 回调线程中解码后的报警事件, 不引用 SDK 结构体
+     *
+     * @param device  设备标识散列, 用于分片与合并
+     * @param userId  登录用户 id, 无效时为 -1
+     * @param counter 已定位的计数器, 仅客流报警且关联成功时非空
+     * @param serial  裁剪后的序列号, 仅在需要打印日志时解码, 否则为 null
+     */
+    private record AlarmEvent(int command, int device, int userId, CameraCounter counter, String serial,
+                              byte mode, int enterNum, int leaveNum) {
+
+        /**
+         * 同一设备、同一统计模式的客流报警只保留最新一条, 其余事件不合并
+         */
+        Object coalesceKey() {
+            return command == HCNetSDK.COMM_ALARM_PDC ? ((long) device << 8) | (mode & 0xFF) : null;
+        }
     }
 
 }
@@ -0,0 +1,62 @@
+package com.lewin.luxanaipark.jna;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link HCNetSDK.NET_DVR_PDC_ALRAM_INFO} 享元读取器.
+ * <p>
+ * 字段偏移量在类加载时通过 JNA 的结构体布局计算一次, 之后直接按偏移量从 native 内存读取需要的字段,
+ * 读取本身不创建结构体对象、不拷贝字节数组、不走反射.
+ * <p>
+ * 注意: SDK 在回调返回后即释放报警缓冲区, 必须在 {@link HCNetSDK.FMSGCallBack#invoke} 内同步读取.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public final class PdcAlarmReader {
+
+    public static final int SIZE;
+    private static final int MODE_OFFSET;
+    private static final int LEAVE_NUM_OFFSET;
+    private static final int ENTER_NUM_OFFSET;
+
+    static {
+        var layout = new HCNetSDK.NET_DVR_PDC_ALRAM_INFO();
+        try {
+            Method fieldOffset = Structure.class.getDeclaredMethod("fieldOffset", String.class);
+            fieldOffset.setAccessible(true);
+            MODE_OFFSET = (int) fieldOffset.invoke(layout, "byMode");
+            LEAVE_NUM_OFFSET = (int) fieldOffset.invoke(layout, "dwLeaveNum");
+            ENTER_NUM_OFFSET = (int) fieldOffset.invoke(layout, "dwEnterNum");
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        SIZE = layout.size();
+    }
+
+    private PdcAlarmReader() {
+    }
+
+    /**
+     * @param dwBufLen 回调给出的缓冲区长度
+     * @return 缓冲区是否足够容纳一个完整的 {@link HCNetSDK.NET_DVR_PDC_ALRAM_INFO}
+     */
+    public static boolean readable(Pointer p, int dwBufLen) {
+        return p != null && dwBufLen >= SIZE;
+    }
+
+    public static byte mode(Pointer p) {
+        return p.getByte(MODE_OFFSET);
+    }
+
+    public static int enterNum(Pointer p) {
+        return p.getInt(ENTER_NUM_OFFSET);
+    }
+
+    public static int leaveNum(Pointer p) {
+        return p.getInt(LEAVE_NUM_OFFSET);
+    }
+}
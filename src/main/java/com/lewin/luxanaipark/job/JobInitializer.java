@@ -4,6 +4,7 @@ import com.lewin.commons.utils.UUIDUtils;
 import com.lewin.luxanaipark.config.BizProperties;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 /**
@@ -16,9 +17,16 @@ import org.springframework.stereotype.Component;
 public class JobInitializer {
 
 
-    public JobInitializer(BizProperties bizProperties) {
+    public JobInitializer(BizProperties bizProperties, ApplicationContext applicationContext) {
         var cronJobList = bizProperties.getCronJobList();
         var factory = new StdSchedulerFactory();
+        try {
+            // job 由 spring 容器创建, 以便注入依赖
+            factory.getScheduler().setJobFactory((bundle, scheduler) ->
+                    applicationContext.getBean(bundle.getJobDetail().getJobClass()));
+        } catch (SchedulerException e) {
+            throw new RuntimeException(e);
+        }
 
         for (var cron : cronJobList) {
             var jb = JobBuilder.newJob(TrafficJob.class)
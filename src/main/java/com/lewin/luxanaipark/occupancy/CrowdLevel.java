@@ -0,0 +1,25 @@
+package com.lewin.luxanaipark.occupancy;
+
+/**
+ * 拥挤程度, 依次对应 {@link com.lewin.luxanaipark.entity.Scene} 的 low、medium、high、capacity 阈值
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum CrowdLevel {
+
+    /** 低于 low */
+    idle,
+
+    /** 达到 low */
+    low,
+
+    /** 达到 medium */
+    medium,
+
+    /** 达到 high */
+    high,
+
+    /** 达到 capacity */
+    full
+}
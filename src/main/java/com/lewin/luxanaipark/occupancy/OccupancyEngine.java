@@ -0,0 +1,202 @@
+package com.lewin.luxanaipark.occupancy;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.OccupancyProperties;
+import com.lewin.luxanaipark.entity.Scene;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficListener;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 场景在场人数与拥挤程度引擎.
+ * <p>
+ * 每次计数变更只用相机的进、出差值更新所属场景的总和, 不遍历场景内的相机. 拥挤程度达到阈值立即升级,
+ * 人数低于阈值减去滞回量才降级, 人数在阈值附近波动时不会反复切换.
+ * 只有进出总数变化的场景才会通知 {@link OccupancyListener}, 拥挤程度变化由监听器比较前后快照得到.
+ * <p>
+ * 计数只由分发线程更新, 读取方拿到的是不可变的 {@link SceneOccupancy}.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@DependsOn("trafficWal")
+public class OccupancyEngine implements TrafficListener {
+
+    private final Map<String, SceneState> scenes = new LinkedHashMap<>();
+    private final Map<String, long[]> cameras = new ConcurrentHashMap<>();
+    private final OccupancyProperties properties;
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<SceneOccupancy> all = List.of();
+
+    public OccupancyEngine(BizProperties bizProperties,
+                           TrafficRegistry trafficRegistry,
+                           TrafficCoalescer coalescer) {
+        this.properties = bizProperties.getOccupancy();
+        for (var scene : bizProperties.getSceneList()) {
+            scenes.put(scene.getName(), new SceneState(scene));
+        }
+        for (var counter : trafficRegistry.all()) {
+            var packed = counter.packed();
+            cameras.put(counter.key(), new long[]{CameraCounter.in(packed), CameraCounter.out(packed)});
+            for (var sceneName : counter.sceneNames()) {
+                var state = scenes.get(sceneName);
+                if (state != null) {
+                    state.in += CameraCounter.in(packed);
+                    state.out += CameraCounter.out(packed);
+                }
+            }
+        }
+        var now = System.currentTimeMillis();
+        for (var state : scenes.values()) {
+            state.level = level(state, clamp(state), CrowdLevel.idle);
+            state.current = state.toOccupancy(clamp(state), now);
+        }
+        publishAll();
+        coalescer.addListener(this);
+    }
+
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    public SceneOccupancy get(String sceneName) {
+        var state = scenes.get(sceneName);
+        return state == null ? null : state.current;
+    }
+
+    /**
+     * @return 所有场景的在场人数, 不可变列表, 仅在变化时重建
+     */
+    public List<SceneOccupancy> all() {
+        return all;
+    }
+
+    @Override
+    public void onTraffic(CameraCounter counter, long packed, long sequence) {
+        var in = CameraCounter.in(packed);
+        var out = CameraCounter.out(packed);
+        var last = cameras.computeIfAbsent(counter.key(), k -> new long[2]);
+        if (last[0] == in && last[1] == out) {
+            return;
+        }
+        var dIn = in - last[0];
+        var dOut = out - last[1];
+        last[0] = in;
+        last[1] = out;
+
+        // 同一相机可属于多个场景, 先更新全部场景再发布列表, 监听器读取 all() 时能看到本次变更
+        var sceneNames = counter.sceneNames();
+        var now = System.currentTimeMillis();
+        for (var sceneName : sceneNames) {
+            var state = scenes.get(sceneName);
+            if (state != null) {
+                state.in += dIn;
+                state.out += dOut;
+                update(state, now);
+            }
+        }
+        publishAll();
+        for (var sceneName : sceneNames) {
+            var state = scenes.get(sceneName);
+            if (state != null) {
+                notifyListeners(state);
+            }
+        }
+    }
+
+    private void update(SceneState state, long now) {
+        var occupancy = clamp(state);
+        var previous = state.level;
+        state.before = state.current;
+        state.level = level(state, occupancy, previous);
+        state.current = state.toOccupancy(occupancy, now);
+        if (state.level != previous) {
+            log.info("场景[{}]拥挤程度[{}] -> [{}], 在场人数[{}]", state.scene.getName(), previous, state.level, occupancy);
+        }
+    }
+
+    private void notifyListeners(SceneState state) {
+        for (var listener : listeners) {
+            try {
+                listener.onOccupancy(state.before, state.current);
+            } catch (Throwable t) {
+                log.error("在场人数监听器[%s]处理异常: %s".formatted(listener.getClass().getSimpleName(), t.getMessage()), t);
+            }
+        }
+    }
+
+    private long clamp(SceneState state) {
+        var occupancy = Math.max(0, state.in - state.out);
+        var capacity = state.scene.getCapacity();
+        return capacity != null && capacity > 0 ? Math.min(occupancy, capacity) : occupancy;
+    }
+
+    /**
+     * 达到更高阈值立即升级; 低于当前阈值减去滞回量才降级
+     */
+    private CrowdLevel level(SceneState state, long occupancy, CrowdLevel current) {
+        var up = CrowdLevel.idle;
+        var down = CrowdLevel.idle;
+        var levels = CrowdLevel.values();
+        for (int i = 1; i < levels.length; i++) {
+            var threshold = state.thresholds[i];
+            if (threshold == null || threshold <= 0) {
+                continue;
+            }
+            if (occupancy >= threshold) {
+                up = levels[i];
+            }
+            var hysteresis = Math.max(properties.getMinHysteresis(), (long) (threshold * properties.getHysteresisRatio()));
+            if (occupancy >= threshold - hysteresis) {
+                down = levels[i];
+            }
+        }
+        if (up.compareTo(current) > 0) {
+            return up;
+        }
+        return down.compareTo(current) < 0 ? down : current;
+    }
+
+    private void publishAll() {
+        var list = new ArrayList<SceneOccupancy>(scenes.size());
+        for (var state : scenes.values()) {
+            list.add(state.current);
+        }
+        all = List.copyOf(list);
+    }
+
+    private static final class SceneState {
+
+        private final Scene scene;
+        /** 依次对应 {@link CrowdLevel} 各级的阈值, idle 无阈值 */
+        private final Integer[] thresholds;
+        private long in;
+        private long out;
+        private CrowdLevel level = CrowdLevel.idle;
+        private volatile SceneOccupancy current;
+        /** 最近一次变更前的快照, 仅分发线程读写 */
+        private SceneOccupancy before;
+
+        private SceneState(Scene scene) {
+            this.scene = scene;
+            this.thresholds = new Integer[]{null, scene.getLow(), scene.getMedium(), scene.getHigh(), scene.getCapacity()};
+        }
+
+        private SceneOccupancy toOccupancy(long occupancy, long now) {
+            return new SceneOccupancy(scene.getName(), in, out, occupancy, scene.getCapacity(), level, now);
+        }
+    }
+}
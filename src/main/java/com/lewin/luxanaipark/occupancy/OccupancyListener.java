@@ -0,0 +1,16 @@
+package com.lewin.luxanaipark.occupancy;
+
+/**
+ * 场景在场人数变更监听器, 由 {@link OccupancyEngine} 在客流分发线程中回调, 实现方不应阻塞
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public interface OccupancyListener {
+
+    /**
+     * @param previous 变更前的场景在场人数
+     * @param current  变更后的场景在场人数
+     */
+    void onOccupancy(SceneOccupancy previous, SceneOccupancy current);
+}
@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.occupancy;
+
+/**
+ * 场景在场人数
+ *
+ * @param name      场景名称
+ * @param in        场景内相机进入人数之和
+ * @param out       场景内相机离开人数之和
+ * @param occupancy 在场人数, 即 in - out, 限制在 [0, capacity] 内
+ * @param capacity  场景容量, 未配置时为 null
+ * @param level     拥挤程度
+ * @param updatedAt 最近一次变化时间戳(毫秒)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneOccupancy(String name,
+                             long in,
+                             long out,
+                             long occupancy,
+                             Integer capacity,
+                             CrowdLevel level,
+                             long updatedAt) {
+}
@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.persist;
+
+/**
+ * 客流日志刷盘策略
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum FsyncPolicy {
+
+    /** 不主动刷盘, 由操作系统回写; 进程崩溃不丢数据, 断电可能丢失最近的记录 */
+    none,
+
+    /** 按固定间隔统一刷盘, 间隔内的所有记录一起提交 */
+    interval,
+
+    /** 写入线程每写完一批记录刷盘一次(组提交) */
+    always
+}
@@ -0,0 +1,87 @@
+package com.lewin.luxanaipark.persist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 客流快照文件.
+ * <p>
+ * 格式: magic(4) 版本(4) lsn(8) 时间戳(8) 相机数(4) [相机 key 哈希(8) 打包计数(8)] x 相机数, 末尾为前述内容的 CRC32C(4).
+ * 先写临时文件再原子重命名, 不会留下写了一半的快照.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class TrafficSnapshotFile {
+
+    private static final int MAGIC = 0x4C585453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int ENTRY_SIZE = 16;
+
+    private TrafficSnapshotFile() {
+    }
+
+    static void write(Path path, long lsn, long timestamp, long[] keyHashes, long[] values, int count) throws IOException {
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * count + 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(lsn).putLong(timestamp).putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(keyHashes[i]).putLong(values[i]);
+        }
+        var crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return 快照 lsn, 文件损坏时返回 -1
+     */
+    static long read(Path path, EntryConsumer consumer) throws IOException {
+        var bytes = Files.readAllBytes(path);
+        if (bytes.length < HEADER_SIZE + 4) {
+            return -1;
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return -1;
+        }
+        var lsn = buffer.getLong();
+        buffer.getLong();
+        var count = buffer.getInt();
+        if (count < 0 || bytes.length != HEADER_SIZE + ENTRY_SIZE * count + 4) {
+            return -1;
+        }
+        var crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            consumer.accept(buffer.getLong(), buffer.getLong());
+        }
+        return lsn;
+    }
+
+    @FunctionalInterface
+    interface EntryConsumer {
+
+        void accept(long keyHash, long packed);
+    }
+}
@@ -0,0 +1,417 @@
+package com.lewin.luxanaipark.persist;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.PersistenceProperties;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficListener;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * 客流日志.
+ * <p>
+ * 作为 {@link TrafficListener} 注册在 {@link TrafficCoalescer} 上, 记录合并后的计数变化: 分发前被后续更新覆盖的中间值不会记录,
+ * 回放时每台相机只取最后一条记录, 恢复结果与逐次记录相同.
+ * <p>
+ * 分发线程只把相机加入待写队列(同一相机在队列中只出现一次), 追加记录、刷盘、快照与日志段轮转都在独立的写入线程中完成,
+ * 磁盘变慢不会拖住其他监听器. 写入线程每次取出一批相机, 按相机当前计数各追加一条定长记录到内存映射的日志段,
+ * {@link FsyncPolicy#always} 下整批写完后刷盘一次(组提交). 快照在写入线程上生成, 快照 lsn 之后的记录读取的计数都不旧于快照,
+ * 回放时不会回退.
+ * <p>
+ * 启动时读取最新的有效快照, 再回放其后的日志尾部恢复各相机计数, 恢复的计数不经过分发器, 下游组件在恢复完成后读取初始值;
+ * 超过保留时长且已被快照覆盖的日志段会被删除.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TrafficWal implements TrafficListener, DisposableBean {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOTS_KEPT = 2;
+    /** 写入线程每批最多处理的相机数 */
+    private static final int BATCH_SIZE = 1024;
+    /** 写入线程空闲时的最长挂起时长 */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final PersistenceProperties properties;
+    private final TrafficRegistry trafficRegistry;
+    private final LongAdder appended = new LongAdder();
+    private final Queue<CameraCounter> dirty = new ConcurrentLinkedQueue<>();
+    private final Set<CameraCounter> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicLong enqueued = new AtomicLong();
+    private Path dir;
+    private Thread writer;
+    private volatile WalSegment segment;
+    private volatile long lastLsn;
+    private volatile long snapshotLsn = -1;
+    private volatile int segmentCount;
+    /** 写入线程已处理的入队次数 */
+    private volatile long drained;
+    private long forcedLsn;
+    private long nextForceAt;
+    private long nextSnapshotAt;
+    private long replayed;
+    private long replayMillis;
+    private volatile boolean failed;
+    private volatile boolean closed;
+
+    public TrafficWal(BizProperties bizProperties, TrafficRegistry trafficRegistry, TrafficCoalescer coalescer) {
+        this.properties = bizProperties.getPersistence();
+        this.trafficRegistry = trafficRegistry;
+        if (!properties.isEnabled()) {
+            log.info("客流日志未启用");
+            return;
+        }
+
+        try {
+            this.dir = Paths.get(properties.getDir()).toAbsolutePath();
+            Files.createDirectories(dir);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("客流日志恢复失败: " + dir, e);
+        }
+        var now = System.currentTimeMillis();
+        this.forcedLsn = lastLsn;
+        this.nextForceAt = now + properties.getFsyncInterval().toMillis();
+        this.nextSnapshotAt = now + properties.getSnapshotInterval().toMillis();
+
+        this.writer = new Thread(this::write, "traffic-wal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        coalescer.addListener(this);
+    }
+
+    @Override
+    public void onTraffic(CameraCounter counter, long packed, long sequence) {
+        if (failed || closed) {
+            return;
+        }
+        // 相机已在队列中时, 写入线程取出后会读取最新计数
+        if (queued.add(counter)) {
+            dirty.offer(counter);
+            enqueued.incrementAndGet();
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public WalStats stats() {
+        return new WalStats(properties.isEnabled() && !failed, lastLsn, appended.sum(), segmentCount, snapshotLsn,
+                replayed, replayMillis);
+    }
+
+    private void recover() throws IOException {
+        var start = System.nanoTime();
+        Map<Long, CameraCounter> byHash = new HashMap<>();
+        for (var counter : trafficRegistry.all()) {
+            var exist = byHash.put(keyHash(counter.key()), counter);
+            if (exist != null) {
+                throw new IllegalStateException("相机[%s]与[%s]的 key 哈希冲突".formatted(exist.key(), counter.key()));
+            }
+        }
+        // 先恢复到内存中的数组, 最后统一写入计数器, 每台相机只触发一次变更
+        Map<Long, Long> values = new HashMap<>();
+
+        var snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0 && snapshotLsn < 0; i--) {
+            values.clear();
+            snapshotLsn = TrafficSnapshotFile.read(snapshots.get(i), values::put);
+            if (snapshotLsn < 0) {
+                log.warn("客流快照[{}]损坏, 忽略", snapshots.get(i).getFileName());
+            }
+        }
+        if (snapshotLsn < 0) {
+            values.clear();
+        }
+
+        var segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        lastLsn = Math.max(snapshotLsn, 0);
+        var count = new long[1];
+        for (int i = 0; i < segments.size(); i++) {
+            var path = segments.get(i);
+            var firstLsn = lsnOf(path, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            // 完全早于快照的日志段无需回放
+            if (i + 1 < segments.size() && lsnOf(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX) <= snapshotLsn + 1) {
+                continue;
+            }
+            var s = WalSegment.open(path, firstLsn, properties.getSegmentSize());
+            var last = s.scan((lsn, timestamp, keyHash, packed) -> {
+                if (lsn > snapshotLsn) {
+                    values.put(keyHash, packed);
+                    count[0]++;
+                }
+            });
+            lastLsn = Math.max(lastLsn, last);
+            if (i == segments.size() - 1) {
+                // 最后一段继续写入
+                segment = s;
+            } else {
+                s.close();
+            }
+        }
+        if (segment == null) {
+            segment = WalSegment.open(segmentPath(dir, lastLsn + 1), lastLsn + 1, properties.getSegmentSize());
+        }
+        segmentCount = Math.max(1, segments.size());
+
+        values.forEach((hash, packed) -> {
+            var counter = byHash.get(hash);
+            if (counter != null) {
+                counter.restore(CameraCounter.in(packed), CameraCounter.out(packed));
+            }
+        });
+        replayed = count[0];
+        replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("客流日志恢复完成: 快照 lsn[{}], 回放记录[{}]条, 恢复相机[{}]台, 耗时[{}]ms",
+                snapshotLsn, replayed, values.size(), replayMillis);
+    }
+
+    /**
+     * 写入线程: 按批追加记录并按策略刷盘, 到期时生成快照; 关闭时写完剩余记录后关闭日志段
+     */
+    private void write() {
+        var idlePark = IDLE_PARK_NANOS;
+        if (FsyncPolicy.interval == properties.getFsync()) {
+            idlePark = Math.min(idlePark, Math.max(1, properties.getFsyncInterval().toNanos()));
+        }
+        while (!closed) {
+            var n = drain();
+            if (!failed) {
+                try {
+                    var now = System.currentTimeMillis();
+                    if (n > 0 && FsyncPolicy.always == properties.getFsync()) {
+                        force(now);
+                    } else if (FsyncPolicy.interval == properties.getFsync() && now >= nextForceAt) {
+                        force(now);
+                    }
+                    if (now >= nextSnapshotAt && lastLsn > Math.max(snapshotLsn, 0)) {
+                        nextSnapshotAt = now + properties.getSnapshotInterval().toMillis();
+                        snapshot(now);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                }
+            }
+            drained += n;
+            if (n == 0) {
+                LockSupport.parkNanos(this, idlePark);
+            }
+        }
+
+        // 关闭前写完已入队的记录
+        int n;
+        while ((n = drain()) > 0) {
+            drained += n;
+        }
+        close(segment);
+    }
+
+    /**
+     * 取出一批相机, 各追加一条记录
+     *
+     * @return 取出的相机数
+     */
+    private int drain() {
+        var n = 0;
+        var now = System.currentTimeMillis();
+        CameraCounter counter;
+        while (n < BATCH_SIZE && (counter = dirty.poll()) != null) {
+            // 先移出集合再读取计数, 期间的新变化会重新入队
+            queued.remove(counter);
+            n++;
+            if (failed) {
+                continue;
+            }
+            try {
+                append(now, keyHash(counter.key()), counter.packed());
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+        return n;
+    }
+
+    private void append(long now, long keyHash, long packed) throws IOException {
+        var lsn = lastLsn + 1;
+        if (!segment.append(lsn, now, keyHash, packed)) {
+            rotate(lsn);
+            segment.append(lsn, now, keyHash, packed);
+        }
+        lastLsn = lsn;
+        appended.increment();
+    }
+
+    private void force(long now) {
+        nextForceAt = now + properties.getFsyncInterval().toMillis();
+        var lsn = lastLsn;
+        if (lsn > forcedLsn) {
+            segment.force();
+            forcedLsn = lsn;
+        }
+    }
+
+    private void fail(Exception e) {
+        failed = true;
+        if (closed) {
+            // 关闭超时后日志段已被强制关闭, 之后的异常可以忽略
+            log.debug("客流日志已关闭: {}", e.getMessage());
+            return;
+        }
+        // 磁盘异常时停止记录, 不影响计数本身
+        log.error("客流日志写入失败, 停止记录: " + e.getMessage(), e);
+    }
+
+    /**
+     * 等待此前入队的相机全部写入, 供测试使用
+     */
+    void sync() {
+        var target = enqueued.get();
+        while (drained < target && writer != null && writer.isAlive()) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private void rotate(long nextLsn) throws IOException {
+        var old = segment;
+        old.force();
+        segment = WalSegment.open(segmentPath(dir, nextLsn), nextLsn, properties.getSegmentSize());
+        segmentCount++;
+        old.close();
+        log.info("客流日志轮转至[{}]", segment.path().getFileName());
+        retire();
+    }
+
+    private void snapshot(long now) throws IOException {
+        // 先刷盘日志, 保证快照之前的记录已落盘
+        segment.force();
+        forcedLsn = lastLsn;
+
+        var counters = new ArrayList<>(trafficRegistry.all());
+        var hashes = new long[counters.size()];
+        var values = new long[counters.size()];
+        for (int i = 0; i < counters.size(); i++) {
+            hashes[i] = keyHash(counters.get(i).key());
+            values[i] = counters.get(i).packed();
+        }
+        var lsn = lastLsn;
+        TrafficSnapshotFile.write(dir.resolve(SNAPSHOT_PREFIX + "%020d".formatted(lsn) + SNAPSHOT_SUFFIX),
+                lsn, now, hashes, values, counters.size());
+        snapshotLsn = lsn;
+
+        var snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = 0; i < snapshots.size() - SNAPSHOTS_KEPT; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        retire();
+    }
+
+    /**
+     * 删除超过保留时长且记录均已被快照覆盖的日志段, 当前写入段始终保留
+     */
+    private void retire() throws IOException {
+        var segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        var deadline = System.currentTimeMillis() - properties.getRetention().toMillis();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            var path = segments.get(i);
+            var nextFirstLsn = lsnOf(segments.get(i + 1), SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (nextFirstLsn <= snapshotLsn + 1 && Files.getLastModifiedTime(path).toMillis() < deadline) {
+                Files.deleteIfExists(path);
+                segmentCount--;
+                log.info("客流日志段[{}]已过期删除", path.getFileName());
+            }
+        }
+    }
+
+    static Path segmentPath(Path dir, long firstLsn) {
+        return dir.resolve(SEGMENT_PREFIX + "%020d".formatted(firstLsn) + SEGMENT_SUFFIX);
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream
+                    .filter(p -> {
+                        var name = p.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(suffix);
+                    })
+                    .sorted(Comparator.comparingLong(p -> lsnOf(p, prefix, suffix)))
+                    .toList();
+        }
+    }
+
+    private static long lsnOf(Path path, String prefix, String suffix) {
+        var name = path.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    /**
+     * 相机 key 的 64 位 FNV-1a 哈希
+     */
+    static long keyHash(String key) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        var t = writer;
+        if (t == null) {
+            return;
+        }
+        LockSupport.unpark(t);
+        try {
+            t.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            // 写入线程卡在磁盘操作上, 直接关闭日志段, 之后的写入会失败并被忽略
+            log.warn("客流日志写入线程[{}]ms 内未退出, 强制关闭", CLOSE_TIMEOUT_MILLIS);
+            close(segment);
+        }
+    }
+
+    private static void close(WalSegment s) {
+        if (s == null) {
+            return;
+        }
+        try {
+            s.force();
+            s.close();
+        } catch (IOException | RuntimeException e) {
+            log.warn("客流日志关闭失败: {}", e.getMessage());
+        }
+    }
+}
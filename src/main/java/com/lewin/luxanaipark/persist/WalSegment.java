@@ -0,0 +1,149 @@
+package com.lewin.luxanaipark.persist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * 客流日志段, 固定大小的内存映射文件.
+ * <p>
+ * 记录定长 40 字节: lsn(8) 时间戳(8) 相机 key 哈希(8) 打包计数(8) CRC32C(4) 保留(4). 文件预先分配, 未写入部分全为 0,
+ * CRC 校验失败即视为日志结尾.
+ * <p>
+ * 仅由单个线程写入, 刷盘可在其他线程进行. 关闭后的写入抛出 {@link IllegalStateException}, 刷盘直接忽略.
+ * 关闭时释放对映射缓冲区的引用, 映射由 GC 回收缓冲区时解除; 已删除日志段占用的磁盘空间在解除映射后归还.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class WalSegment implements Closeable {
+
+    static final int RECORD_SIZE = 40;
+    private static final int PAYLOAD_SIZE = 32;
+
+    private final Path path;
+    private final long firstLsn;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private ByteBuffer crcView;
+    private final CRC32C crc = new CRC32C();
+    private final int limit;
+    private int position;
+    private boolean closed;
+
+    private WalSegment(Path path, long firstLsn, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstLsn = firstLsn;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.crcView = buffer.duplicate();
+        this.limit = buffer.capacity() / RECORD_SIZE * RECORD_SIZE;
+    }
+
+    /**
+     * 打开或创建日志段
+     *
+     * @param size 新建时的文件大小, 打开已有文件时使用其实际大小
+     */
+    static WalSegment open(Path path, long firstLsn, int size) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var length = channel.size() > 0 ? channel.size() : size;
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new WalSegment(path, firstLsn, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long firstLsn() {
+        return firstLsn;
+    }
+
+    /**
+     * @return 是否写入成功, 段已满时返回 false
+     */
+    synchronized boolean append(long lsn, long timestamp, long keyHash, long packed) {
+        if (closed) {
+            throw new IllegalStateException("日志段已关闭: " + path.getFileName());
+        }
+        if (position + RECORD_SIZE > limit) {
+            return false;
+        }
+        var p = position;
+        buffer.putLong(p, lsn);
+        buffer.putLong(p + 8, timestamp);
+        buffer.putLong(p + 16, keyHash);
+        buffer.putLong(p + 24, packed);
+        buffer.putInt(p + 32, checksum(p));
+        buffer.putInt(p + 36, 0);
+        position = p + RECORD_SIZE;
+        return true;
+    }
+
+    /**
+     * 从头扫描有效记录, 扫描结束后写入位置位于最后一条有效记录之后
+     *
+     * @param consumer 记录消费者
+     * @return 最后一条有效记录的 lsn, 没有有效记录时返回 firstLsn - 1
+     */
+    long scan(RecordConsumer consumer) {
+        var expected = firstLsn;
+        var p = 0;
+        while (p + RECORD_SIZE <= limit) {
+            var lsn = buffer.getLong(p);
+            if (lsn != expected || buffer.getInt(p + 32) != checksum(p)) {
+                break;
+            }
+            consumer.accept(lsn, buffer.getLong(p + 8), buffer.getLong(p + 16), buffer.getLong(p + 24));
+            expected++;
+            p += RECORD_SIZE;
+        }
+        position = p;
+        return expected - 1;
+    }
+
+    synchronized void force() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 关闭文件并解除内存映射, 可重复调用
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 不再持有映射, 缓冲区被回收后映射随之解除
+        buffer = null;
+        crcView = null;
+        channel.close();
+    }
+
+    private int checksum(int p) {
+        crc.reset();
+        crcView.limit(p + PAYLOAD_SIZE).position(p);
+        crc.update(crcView);
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+
+        void accept(long lsn, long timestamp, long keyHash, long packed);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.persist;
+
+/**
+ * 客流日志指标
+ *
+ * @param enabled        是否启用
+ * @param lastLsn        最后写入的 lsn
+ * @param appended       本次启动后写入的记录数
+ * @param segments       现存日志段数量
+ * @param snapshotLsn    最近一次快照对应的 lsn
+ * @param replayed       启动时回放的日志记录数
+ * @param replayMillis   启动恢复耗时(毫秒)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record WalStats(boolean enabled,
+                       long lastLsn,
+                       long appended,
+                       int segments,
+                       long snapshotLsn,
+                       long replayed,
+                       long replayMillis) {
+}
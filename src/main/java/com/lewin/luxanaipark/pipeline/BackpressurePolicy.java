@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.pipeline;
+
+/**
+ * 事件管道队列满时的背压策略
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum BackpressurePolicy {
+
+    /** 丢弃最早的事件, 生产者永不阻塞 */
+    DROP_OLDEST,
+
+    /** 同一合并键的待处理事件被新事件原位替换, 队列仍满时丢弃最早的事件 */
+    COALESCE,
+
+    /** 生产者阻塞直至队列有空位, 不适用于 SDK 回调管道(见 {@link EventPipeline#forSdkCallback}) */
+    BLOCK;
+}
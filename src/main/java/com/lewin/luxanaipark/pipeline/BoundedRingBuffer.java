@@ -0,0 +1,271 @@
+package com.lewin.luxanaipark.pipeline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 多生产者、单消费者的有界环形缓冲区, 无锁.
+ * <p>
+ * 每个槽位带一个序号: 生产者 CAS 递增写序号占用槽位, 写入事件后更新槽位序号发布; 消费者 CAS 递增读序号取出事件后,
+ * 把槽位序号推进一圈交还给生产者. 队列满时 DROP_OLDEST/COALESCE 由生产者自己取出并丢弃最早的事件再重试, 因此读序号同样使用 CAS.
+ * <p>
+ * COALESCE 下带合并键的事件包装为 {@link Pending} 入队, 合并键索引指向尚未被取出的包装, 新事件通过 CAS 原位替换;
+ * 包装被取出后不能再替换, 新事件重新入队.
+ * <p>
+ * 消费者队列为空时挂起, 挂起前设置等待标记, 生产者发布事件后只在标记存在时唤醒, 避免每条事件一次系统调用.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class BoundedRingBuffer<E> {
+
+    /** BLOCK 策略下生产者每次等待空位的挂起时长 */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** 入队结果 */
+    enum Offer {
+        ACCEPTED,
+        COALESCED,
+        DROPPED_OLDEST,
+        CLOSED
+    }
+
+    private final Object[] elements;
+    private final long[] enqueueNanos;
+    private final AtomicLongArray sequences;
+    private final int capacity;
+    private final BackpressurePolicy policy;
+    private final Map<Object, Pending> pendingKeys;
+
+    /** 下一个待写入序号 */
+    private final AtomicLong tail = new AtomicLong();
+    /** 下一个待消费序号 */
+    private final AtomicLong head = new AtomicLong();
+    private volatile Thread consumer;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    BoundedRingBuffer(int capacity, BackpressurePolicy policy) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.elements = new Object[capacity];
+        this.enqueueNanos = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.pendingKeys = policy == BackpressurePolicy.COALESCE ? new ConcurrentHashMap<>() : null;
+    }
+
+    Offer offer(E e, Object coalesceKey) throws InterruptedException {
+        if (closed) {
+            return Offer.CLOSED;
+        }
+
+        Object item = e;
+        Pending pending = null;
+        if (pendingKeys != null && coalesceKey != null) {
+            var exist = pendingKeys.get(coalesceKey);
+            if (exist != null && exist.replace(e)) {
+                return Offer.COALESCED;
+            }
+            pending = new Pending(coalesceKey, e);
+            pendingKeys.put(coalesceKey, pending);
+            item = pending;
+        }
+
+        var result = Offer.ACCEPTED;
+        while (!tryEnqueue(item)) {
+            if (closed) {
+                if (pending != null) {
+                    pendingKeys.remove(coalesceKey, pending);
+                }
+                return Offer.CLOSED;
+            }
+            if (policy == BackpressurePolicy.BLOCK) {
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (Thread.interrupted()) {
+                    if (pending != null) {
+                        pendingKeys.remove(coalesceKey, pending);
+                    }
+                    throw new InterruptedException();
+                }
+            } else if (dropOldest()) {
+                result = Offer.DROPPED_OLDEST;
+            }
+        }
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return result;
+    }
+
+    /**
+     * 批量取出事件, 队列为空时最多等待指定时长; 只能由同一个消费线程调用
+     *
+     * @return 取出的事件数, 0 表示超时或已关闭且为空
+     */
+    int drainTo(E[] out, long[] outNanos, long timeout, TimeUnit unit) throws InterruptedException {
+        consumer = Thread.currentThread();
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (; ; ) {
+            var n = 0;
+            while (n < out.length && poll(out, outNanos, n)) {
+                n++;
+            }
+            if (n > 0 || closed) {
+                return n;
+            }
+
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return 0;
+            }
+            waiting = true;
+            // 设置标记后再检查一次, 与生产者先发布再读标记配合, 不会错过唤醒
+            if (!published(head.get()) && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            waiting = false;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head.get()));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void close() {
+        closed = true;
+        var t = consumer;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private boolean tryEnqueue(Object item) {
+        for (; ; ) {
+            var pos = tail.get();
+            var i = index(pos);
+            var dif = sequences.get(i) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements[i] = item;
+                    enqueueNanos[i] = System.nanoTime();
+                    sequences.set(i, pos + 1);
+                    return true;
+                }
+            } else if (dif < 0) {
+                // 槽位尚未被消费, 队列已满
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 取出一个已发布的事件写入 out[k]
+     *
+     * @return 队列为空时返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean poll(E[] out, long[] outNanos, int k) {
+        for (; ; ) {
+            var pos = head.get();
+            if (!published(pos)) {
+                return false;
+            }
+            var i = index(pos);
+            if (!head.compareAndSet(pos, pos + 1)) {
+                continue;
+            }
+            var item = elements[i];
+            var nanos = enqueueNanos[i];
+            elements[i] = null;
+            sequences.set(i, pos + capacity);
+
+            if (item instanceof Pending pending) {
+                item = pending.take();
+                pendingKeys.remove(pending.key, pending);
+            }
+            out[k] = (E) item;
+            outNanos[k] = nanos;
+            return true;
+        }
+    }
+
+    /**
+     * 生产者在队列满时丢弃最早的事件
+     *
+     * @return 是否丢弃了事件, 期间事件已被消费者取走时返回 false
+     */
+    private boolean dropOldest() {
+        for (; ; ) {
+            var pos = head.get();
+            if (!published(pos)) {
+                return false;
+            }
+            var i = index(pos);
+            if (head.compareAndSet(pos, pos + 1)) {
+                var item = elements[i];
+                elements[i] = null;
+                sequences.set(i, pos + capacity);
+                if (item instanceof Pending pending) {
+                    pending.take();
+                    pendingKeys.remove(pending.key, pending);
+                }
+                return true;
+            }
+        }
+    }
+
+    private boolean published(long pos) {
+        return sequences.get(index(pos)) == pos + 1;
+    }
+
+    private int index(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    /**
+     * 可合并的待处理事件, 值为 null 表示已被取出
+     */
+    private static final class Pending extends AtomicReference<Object> {
+
+        private final Object key;
+
+        private Pending(Object key, Object event) {
+            super(event);
+            this.key = key;
+        }
+
+        /**
+         * @return 事件尚未被取出时替换成功
+         */
+        boolean replace(Object event) {
+            for (; ; ) {
+                var current = get();
+                if (current == null) {
+                    return false;
+                }
+                if (compareAndSet(current, event)) {
+                    return true;
+                }
+            }
+        }
+
+        Object take() {
+            return getAndSet(null);
+        }
+    }
+}
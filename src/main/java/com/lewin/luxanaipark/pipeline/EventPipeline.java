@@ -0,0 +1,214 @@
+package com.lewin.luxanaipark.pipeline;
+
+import com.lewin.luxanaipark.config.PipelineProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * SDK 回调事件管道.
+ * <p>
+ * 事件按分片键散列到 N 个分片, 每个分片一个有界环形缓冲区和一个消费线程, 同一设备的事件始终落在同一分片, 保证处理顺序.
+ * 回调线程只负责入队, 队列满时按 {@link BackpressurePolicy} 处理, 不会抛出异常.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public class EventPipeline<E> {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final String name;
+    private final ToIntFunction<E> shardKey;
+    private final Function<E, Object> coalesceKey;
+    private final Consumer<E> handler;
+    private final List<BoundedRingBuffer<E>> shards;
+    private final List<Thread> workers;
+    private final long shutdownTimeoutMillis;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * @param name        管道名称, 同时作为消费线程名前缀
+     * @param properties  管道配置
+     * @param shardKey    分片键, 通常为设备标识的散列值
+     * @param coalesceKey 合并键, 仅在 {@link BackpressurePolicy#COALESCE} 下生效, 可为 null
+     * @param handler     事件处理函数
+     */
+    public EventPipeline(String name,
+                         PipelineProperties properties,
+                         ToIntFunction<E> shardKey,
+                         Function<E, Object> coalesceKey,
+                         Consumer<E> handler) {
+        if (properties.getWorkers() < 1 || properties.getCapacity() < properties.getWorkers()) {
+            throw new IllegalArgumentException("非法的管道配置: " + properties);
+        }
+        this.name = name;
+        this.shardKey = shardKey;
+        this.coalesceKey = coalesceKey;
+        this.handler = handler;
+        this.shutdownTimeoutMillis = properties.getShutdownTimeout().toMillis();
+
+        var n = properties.getWorkers();
+        var perShard = properties.getCapacity() / n;
+        var shardList = new ArrayList<BoundedRingBuffer<E>>(n);
+        var workerList = new ArrayList<Thread>(n);
+        for (int i = 0; i < n; i++) {
+            var shard = new BoundedRingBuffer<E>(perShard, properties.getPolicy());
+            shardList.add(shard);
+
+            var t = new Thread(() -> consume(shard), "%s-%d".formatted(name, i));
+            t.setDaemon(true);
+            workerList.add(t);
+        }
+        this.shards = List.copyOf(shardList);
+        this.workers = List.copyOf(workerList);
+        this.workers.forEach(Thread::start);
+    }
+
+    /**
+     * 创建接收 SDK 回调的管道. 回调线程属于 native 库, 阻塞会拖住 SDK 内部的报警与状态分发,
+     * 因此 {@link BackpressurePolicy#BLOCK} 降级为 {@link BackpressurePolicy#DROP_OLDEST}.
+     */
+    public static <E> EventPipeline<E> forSdkCallback(String name,
+                                                      PipelineProperties properties,
+                                                      ToIntFunction<E> shardKey,
+                                                      Function<E, Object> coalesceKey,
+                                                      Consumer<E> handler) {
+        if (properties.getPolicy() == BackpressurePolicy.BLOCK) {
+            log.warn("管道[{}]接收 SDK 回调, 不允许阻塞回调线程, 背压策略 BLOCK 降级为 DROP_OLDEST", name);
+            var copy = new PipelineProperties();
+            copy.setWorkers(properties.getWorkers());
+            copy.setCapacity(properties.getCapacity());
+            copy.setShutdownTimeout(properties.getShutdownTimeout());
+            copy.setPolicy(BackpressurePolicy.DROP_OLDEST);
+            properties = copy;
+        }
+        return new EventPipeline<>(name, properties, shardKey, coalesceKey, handler);
+    }
+
+    /**
+     * 发布事件
+     *
+     * @return 事件是否被接收(包含合并), 管道已关闭或被中断时返回 false
+     */
+    public boolean publish(E e) {
+        var shard = shards.get((shardKey.applyAsInt(e) & 0x7fffffff) % shards.size());
+        var key = coalesceKey == null ? null : coalesceKey.apply(e);
+        try {
+            switch (shard.offer(e, key)) {
+                case ACCEPTED -> published.increment();
+                case COALESCED -> coalesced.increment();
+                case DROPPED_OLDEST -> {
+                    published.increment();
+                    dropped.increment();
+                }
+                case CLOSED -> {
+                    dropped.increment();
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            return false;
+        }
+    }
+
+    /**
+     * 停止接收事件, 等待积压事件处理完成; 超时后剩余事件被丢弃
+     */
+    public void shutdown() {
+        running = false;
+        shards.forEach(BoundedRingBuffer::close);
+
+        var deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        for (var t : workers) {
+            try {
+                t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        var remain = depth();
+        if (remain > 0) {
+            dropped.add(remain);
+            log.warn("管道[{}]关闭超时, 丢弃积压事件[{}]", name, remain);
+        }
+        workers.forEach(Thread::interrupt);
+        log.info("管道[{}]已关闭", name);
+    }
+
+    public PipelineStats stats() {
+        var done = processed.sum() + failed.sum();
+        return new PipelineStats(
+                name,
+                workers.size(),
+                depth(),
+                shards.stream().mapToInt(BoundedRingBuffer::capacity).sum(),
+                published.sum(),
+                processed.sum(),
+                dropped.sum(),
+                coalesced.sum(),
+                failed.sum(),
+                done == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(latencyNanos.sum() / done),
+                TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get())
+        );
+    }
+
+    private int depth() {
+        return shards.stream().mapToInt(BoundedRingBuffer::size).sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void consume(BoundedRingBuffer<E> shard) {
+        var batch = (E[]) new Object[BATCH_SIZE];
+        var batchNanos = new long[BATCH_SIZE];
+        while (true) {
+            int n;
+            try {
+                n = shard.drainTo(batch, batchNanos, 1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (n == 0) {
+                if (!running) {
+                    break;
+                }
+                continue;
+            }
+
+            for (int i = 0; i < n; i++) {
+                try {
+                    handler.accept(batch[i]);
+                    processed.increment();
+                } catch (Throwable t) {
+                    failed.increment();
+                    log.error("管道[%s]事件处理异常: %s".formatted(name, t.getMessage()), t);
+                } finally {
+                    var latency = System.nanoTime() - batchNanos[i];
+                    latencyNanos.add(latency);
+                    maxLatencyNanos.accumulate(latency);
+                    batch[i] = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.lewin.luxanaipark.pipeline;
+
+/**
+ * 事件管道运行指标
+ *
+ * @param name             管道名称
+ * @param workers          消费线程数
+ * @param depth            当前积压事件数
+ * @param capacity         总容量
+ * @param published        累计发布数
+ * @param processed        累计处理数
+ * @param dropped          累计丢弃数
+ * @param coalesced        累计合并数
+ * @param failed           累计处理异常数
+ * @param avgLatencyMicros 平均处理延迟(入队至处理完成), 微秒
+ * @param maxLatencyMicros 最大处理延迟, 微秒
+ * @author Jun
+ * @since 1.0.0
+ */
+public record PipelineStats(String name,
+                            int workers,
+                            int depth,
+                            int capacity,
+                            long published,
+                            long processed,
+                            long dropped,
+                            long coalesced,
+                            long failed,
+                            long avgLatencyMicros,
+                            long maxLatencyMicros) {
+}
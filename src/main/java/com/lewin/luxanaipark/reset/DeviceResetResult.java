@@ -0,0 +1,23 @@
+package com.lewin.luxanaipark.reset;
+
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+
+/**
+ * 单台设备清零结果
+ *
+ * @param key            设备 ip:port
+ * @param type           设备类型
+ * @param status         最终结果
+ * @param attempts       尝试次数, 未开始即超时为 0
+ * @param message        最后一次失败原因
+ * @param durationMillis 从首次尝试到得出结果的耗时
+ * @author Jun
+ * @since 1.0.0
+ */
+public record DeviceResetResult(String key,
+                                CameraTypeEnum type,
+                                ResetStatus status,
+                                int attempts,
+                                String message,
+                                long durationMillis) {
+}
@@ -0,0 +1,269 @@
+package com.lewin.luxanaipark.reset;
+
+import com.lewin.commons.constants.CommonResponseCode;
+import com.lewin.commons.entity.LewinResult;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.IsapiProperties;
+import com.lewin.luxanaipark.config.ResetProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.TrafficParams;
+import com.lewin.luxanaipark.service.ISceneService;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客流清零编排.
+ * <p>
+ * 神目与海康设备统一并发清零: 最多 {@link ResetProperties#getParallelism()} 台设备同时在途(海康与其他设备合计), 每台设备有单次超时与重试,
+ * 整个任务有截止时间, 到期后未完成的设备记为超时. 清零本身是异步的, 编排线程只负责调度, 不会被单台慢设备阻塞.
+ * <p>
+ * 海康清零在 ISAPI 线程池中阻塞执行, 同时在途的海康设备数不超过 {@link IsapiProperties#getPoolSize()}, 不在线程池中排队.
+ * 单台超时交给设备调用本身(ISAPI 接收超时/神目指令超时), 从调用真正开始时计时; 一次调用结束后才会记录结果或重试,
+ * 同一设备不会有两次清零同时在途, 也不会在记为超时后才清空计数.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ResetOrchestrator implements DisposableBean {
+
+    private final ISceneService sceneService;
+    private final TrafficRegistry trafficRegistry;
+    private final ResetProperties properties;
+    private final int isapiPoolSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("traffic-reset", true));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Deque<ResetReport> history = new ArrayDeque<>();
+
+    public ResetOrchestrator(ISceneService sceneService, TrafficRegistry trafficRegistry, BizProperties bizProperties) {
+        this.sceneService = sceneService;
+        this.trafficRegistry = trafficRegistry;
+        this.properties = bizProperties.getReset();
+        this.isapiPoolSize = Math.max(1, bizProperties.getIsapi().getPoolSize());
+    }
+
+    /**
+     * 对所有已注册设备执行一次清零
+     *
+     * @param trigger 触发来源
+     * @return 执行报告, 已有任务在执行时返回失败
+     */
+    public CompletableFuture<LewinResult<ResetReport>> run(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "清零任务正在执行"));
+        }
+
+        var id = sequence.incrementAndGet();
+        var start = System.nanoTime();
+        var startTime = Instant.now();
+        var deadline = start + properties.getJobTimeout().toNanos();
+        var devices = List.copyOf(trafficRegistry.all());
+        var results = new DeviceResetResult[devices.size()];
+        var hik = new ArrayList<Integer>();
+        var others = new ArrayList<Integer>();
+        for (int i = 0; i < devices.size(); i++) {
+            (devices.get(i).type() == CameraTypeEnum.hik ? hik : others).add(i);
+        }
+        log.info("清零任务[{}]开始, 触发来源[{}], 设备[{}]台", id, trigger, devices.size());
+
+        // 固定数量的调度通道依次领取设备, 通道总数不超过并发上限;
+        // 海康通道数不超过 ISAPI 线程数, 海康设备领完后改领其他设备, 其他通道只领非海康设备
+        var parallelism = Math.max(1, properties.getParallelism());
+        var hikLanes = Math.min(Math.min(parallelism, isapiPoolSize), hik.size());
+        var otherLanes = Math.min(parallelism - hikLanes, others.size());
+        var hikQueue = new DeviceQueue(hik);
+        var otherQueue = new DeviceQueue(others);
+        var lanes = new ArrayList<CompletableFuture<?>>(hikLanes + otherLanes);
+        for (int i = 0; i < hikLanes; i++) {
+            lanes.add(CompletableFuture.runAsync(() -> { }, scheduler)
+                    .thenCompose(v -> lane(devices, List.of(hikQueue, otherQueue), results, deadline)));
+        }
+        for (int i = 0; i < otherLanes; i++) {
+            lanes.add(CompletableFuture.runAsync(() -> { }, scheduler)
+                    .thenCompose(v -> lane(devices, List.of(otherQueue), results, deadline)));
+        }
+
+        return CompletableFuture.allOf(lanes.toArray(CompletableFuture[]::new)).handle((v, t) -> {
+            try {
+                var report = report(id, trigger, startTime, start, results);
+                log.info("清零任务[{}]完成, 成功[{}], 失败[{}], 超时[{}], 耗时[{}]ms",
+                        id, report.succeeded(), report.failed(), report.timedOut(), report.durationMillis());
+                synchronized (history) {
+                    history.addFirst(report);
+                    while (history.size() > Math.max(1, properties.getHistorySize())) {
+                        history.removeLast();
+                    }
+                }
+                return LewinResult.ok(report);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * @return 最近一次报告
+     */
+    public ResetReport latest() {
+        synchronized (history) {
+            return history.peekFirst();
+        }
+    }
+
+    /**
+     * @return 历史报告, 按时间倒序
+     */
+    public List<ResetReport> history() {
+        synchronized (history) {
+            return List.copyOf(history);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 调度通道: 按顺序从队列中领取设备, 前一个队列领完后才领下一个, 全部领完时结束
+     */
+    private CompletableFuture<Void> lane(List<CameraCounter> devices, List<DeviceQueue> queues,
+                                         DeviceResetResult[] results, long deadline) {
+        var i = -1;
+        for (var queue : queues) {
+            if ((i = queue.poll()) >= 0) {
+                break;
+            }
+        }
+        if (i < 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var index = i;
+        return attempt(devices.get(index), 1, System.nanoTime(), deadline)
+                .thenComposeAsync(r -> {
+                    results[index] = r;
+                    return lane(devices, queues, results, deadline);
+                }, scheduler);
+    }
+
+    private CompletableFuture<DeviceResetResult> attempt(CameraCounter counter, int attempt, long start, long deadline) {
+        var remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return CompletableFuture.completedFuture(result(counter, ResetStatus.TIMED_OUT, attempt - 1, "任务截止时间已到", start));
+        }
+
+        var cameraInfo = counter.cameraInfo();
+        var params = new TrafficParams().setIp(cameraInfo.getIp()).setPort(cameraInfo.getPort());
+        var timeout = Math.min(properties.getDeviceTimeout().toNanos(), remaining);
+        var startedAt = new AtomicLong(Long.MIN_VALUE);
+        CompletableFuture<LewinResult<Void>> f;
+        try {
+            f = sceneService.clean(params, Duration.ofMillis(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout))),
+                    () -> startedAt.set(System.nanoTime()));
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+
+        // 不在外层另加超时: f 完成时设备调用已结束, 之后才记录结果或重试
+        return f.handle((r, t) -> {
+            if (t == null && r.isOk()) {
+                return CompletableFuture.completedFuture(result(counter, ResetStatus.SUCCEEDED, attempt, null, start));
+            }
+
+            var cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            var began = startedAt.get();
+            var timedOut = cause instanceof TimeoutException
+                    || began != Long.MIN_VALUE && System.nanoTime() - began >= timeout;
+            var status = timedOut ? ResetStatus.TIMED_OUT : ResetStatus.FAILED;
+            var message = cause == null ? r.getMsg() : cause.toString();
+            var retryDelay = properties.getRetryDelay().toNanos();
+            if (attempt > properties.getRetries() || System.nanoTime() + retryDelay >= deadline) {
+                log.warn("[{}]清零失败, 已尝试[{}]次: {}", cameraInfo.key(), attempt, message);
+                return CompletableFuture.completedFuture(result(counter, status, attempt, message, start));
+            }
+
+            log.debug("[{}]第[{}]次清零失败, 稍后重试: {}", cameraInfo.key(), attempt, message);
+            var delayed = CompletableFuture.delayedExecutor(retryDelay, TimeUnit.NANOSECONDS, scheduler);
+            return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(v -> attempt(counter, attempt + 1, start, deadline));
+        }).thenCompose(t -> t);
+    }
+
+    private static DeviceResetResult result(CameraCounter counter, ResetStatus status, int attempts, String message, long start) {
+        return new DeviceResetResult(counter.key(), counter.type(), status, attempts, message,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static ResetReport report(long id, String trigger, Instant startTime, long start, DeviceResetResult[] results) {
+        int succeeded = 0, failed = 0, timedOut = 0;
+        var devices = new ArrayList<DeviceResetResult>();
+        for (var r : results) {
+            if (r == null) {
+                // 调度异常未得出结果, 视为超时
+                timedOut++;
+                continue;
+            }
+            switch (r.status()) {
+                case SUCCEEDED -> succeeded++;
+                case FAILED -> {
+                    failed++;
+                    devices.add(r);
+                }
+                case TIMED_OUT -> {
+                    timedOut++;
+                    devices.add(r);
+                }
+            }
+        }
+        return new ResetReport(id, trigger, startTime, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                results.length, succeeded, failed, timedOut, List.copyOf(devices));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 待清零设备下标队列, 多个通道并发领取
+     */
+    private static final class DeviceQueue {
+
+        private final List<Integer> order;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private DeviceQueue(List<Integer> order) {
+            this.order = order;
+        }
+
+        /**
+         * @return 设备下标, 已领完时返回 -1
+         */
+        int poll() {
+            var next = cursor.getAndIncrement();
+            return next < order.size() ? order.get(next) : -1;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.lewin.luxanaipark.reset;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 一次清零任务的执行报告
+ *
+ * @param id             报告 id
+ * @param trigger        触发来源, cron 或 manual
+ * @param startTime      开始时间
+ * @param durationMillis 总耗时
+ * @param total          设备总数
+ * @param succeeded      成功数
+ * @param failed         失败数
+ * @param timedOut       超时数
+ * @param devices        失败及超时设备明细
+ * @author Jun
+ * @since 1.0.0
+ */
+public record ResetReport(long id,
+                          String trigger,
+                          Instant startTime,
+                          long durationMillis,
+                          int total,
+                          int succeeded,
+                          int failed,
+                          int timedOut,
+                          List<DeviceResetResult> devices) {
+}
@@ -0,0 +1,11 @@
+package com.lewin.luxanaipark.reset;
+
+/**
+ * 设备清零结果
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum ResetStatus {
+    SUCCEEDED, FAILED, TIMED_OUT
+}
@@ -0,0 +1,14 @@
+package com.lewin.luxanaipark.rollup;
+
+import java.util.List;
+
+/**
+ * 单台相机的汇总
+ *
+ * @param name    相机名称
+ * @param buckets 按时间升序的汇总窗口
+ * @author Jun
+ * @since 1.0.0
+ */
+public record CameraRollup(String name, List<RollupBucket> buckets) {
+}
@@ -0,0 +1,15 @@
+package com.lewin.luxanaipark.rollup;
+
+/**
+ * 一个汇总窗口
+ *
+ * @param start         窗口起始时间(毫秒)
+ * @param entries       进入人数
+ * @param exits         离开人数
+ * @param peakOccupancy 窗口内最高在场人数(进 - 出)
+ * @param samples       窗口内的计数更新次数
+ * @author Jun
+ * @since 1.0.0
+ */
+public record RollupBucket(long start, long entries, long exits, int peakOccupancy, int samples) {
+}
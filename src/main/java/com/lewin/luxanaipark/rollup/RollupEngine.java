@@ -0,0 +1,177 @@
+package com.lewin.luxanaipark.rollup;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.RollupProperties;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficListener;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客流汇总引擎.
+ * <p>
+ * 神目与海康两条接入路径最终都更新 {@link CameraCounter}, 经 {@link TrafficCoalescer} 分发到这里. 引擎记录每台相机上一次的计数,
+ * 将两次之间的差值作为增量累加到相机和所属各场景的分钟、小时、天三个粒度的当前窗口; 计数变小视为设备或清零任务重置了计数,
+ * 此时以新计数作为增量. 查询直接读取预先汇总的窗口.
+ * <p>
+ * 启动时以 {@link com.lewin.luxanaipark.persist.TrafficWal} 恢复后的计数作为基准, 恢复的历史总数不会计入当前窗口.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@DependsOn("trafficWal")
+public class RollupEngine implements TrafficListener {
+
+    private static final long OFFSET_REFRESH_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final Map<String, CameraState> cameras = new ConcurrentHashMap<>();
+    private final Map<String, SceneState> scenes = new ConcurrentHashMap<>();
+    private final TrafficRegistry trafficRegistry;
+    private final RollupProperties properties;
+    private long offsetMillis;
+    private long offsetValidUntil = Long.MIN_VALUE;
+
+    public RollupEngine(BizProperties bizProperties, TrafficRegistry trafficRegistry, TrafficCoalescer coalescer) {
+        this.trafficRegistry = trafficRegistry;
+        this.properties = bizProperties.getRollup();
+        for (var counter : trafficRegistry.all()) {
+            track(counter, counter.packed());
+        }
+        coalescer.addListener(this);
+    }
+
+    @Override
+    public void onTraffic(CameraCounter counter, long packed, long sequence) {
+        var camera = cameras.get(counter.key());
+        if (camera == null) {
+            // 运行期间新注册的相机, 以首次计数为基准
+            track(counter, packed);
+            return;
+        }
+
+        var in = CameraCounter.in(packed);
+        var out = CameraCounter.out(packed);
+        long dIn = in >= camera.in ? in - camera.in : in;
+        long dOut = out >= camera.out ? out - camera.out : out;
+        var occupancy = in - out;
+        var dOccupancy = occupancy - (camera.in - camera.out);
+        camera.in = in;
+        camera.out = out;
+        for (var scene : camera.scenes) {
+            scene.occupancy += dOccupancy;
+        }
+        if (dIn == 0 && dOut == 0) {
+            return;
+        }
+
+        var now = System.currentTimeMillis();
+        var offset = offset(now);
+        for (var granularity : RollupGranularity.values()) {
+            camera.series.get(granularity).add(now, offset, dIn, dOut, occupancy);
+            for (var scene : camera.scenes) {
+                scene.series.get(granularity).add(now, offset, dIn, dOut, scene.occupancy);
+            }
+        }
+    }
+
+    /**
+     * @param sceneName   场景名称
+     * @param granularity 汇总粒度
+     * @param from        起始时间(毫秒, 含)
+     * @param to          结束时间(毫秒, 不含)
+     * @return 场景不存在时返回 null
+     */
+    public SceneRollup query(String sceneName, RollupGranularity granularity, long from, long to) {
+        var counters = trafficRegistry.scene(sceneName);
+        if (counters == null) {
+            return null;
+        }
+        var scene = scenes.get(sceneName);
+        var buckets = scene == null ? new ArrayList<RollupBucket>() : scene.series.get(granularity).query(from, to);
+        var cameraRollups = new ArrayList<CameraRollup>(counters.size());
+        for (var counter : counters) {
+            var camera = cameras.get(counter.key());
+            cameraRollups.add(new CameraRollup(counter.cameraInfo().getName(),
+                    camera == null ? new ArrayList<>() : camera.series.get(granularity).query(from, to)));
+        }
+        return new SceneRollup(sceneName, granularity, buckets, cameraRollups);
+    }
+
+    private void track(CameraCounter counter, long packed) {
+        var sceneStates = counter.sceneNames().stream()
+                .map(name -> scenes.computeIfAbsent(name, k -> new SceneState(newSeries())))
+                .toList();
+        var camera = new CameraState(sceneStates, newSeries());
+        camera.in = CameraCounter.in(packed);
+        camera.out = CameraCounter.out(packed);
+        if (cameras.putIfAbsent(counter.key(), camera) == null) {
+            for (var scene : sceneStates) {
+                scene.occupancy += camera.in - camera.out;
+            }
+        }
+    }
+
+    private Map<RollupGranularity, RollupSeries> newSeries() {
+        var series = new EnumMap<RollupGranularity, RollupSeries>(RollupGranularity.class);
+        series.put(RollupGranularity.minute, new RollupSeries(RollupGranularity.minute, capacity(properties.getMinuteRetention(), RollupGranularity.minute)));
+        series.put(RollupGranularity.hour, new RollupSeries(RollupGranularity.hour, capacity(properties.getHourRetention(), RollupGranularity.hour)));
+        series.put(RollupGranularity.day, new RollupSeries(RollupGranularity.day, capacity(properties.getDayRetention(), RollupGranularity.day)));
+        return series;
+    }
+
+    private static int capacity(Duration retention, RollupGranularity granularity) {
+        return (int) Math.max(1, retention.toMillis() / granularity.millis());
+    }
+
+    /**
+     * 时区偏移每小时重新计算一次, 兼顾夏令时
+     */
+    private long offset(long now) {
+        if (now >= offsetValidUntil) {
+            offsetMillis = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochMilli(now)).getTotalSeconds() * 1000L;
+            offsetValidUntil = now + OFFSET_REFRESH_MILLIS;
+        }
+        return offsetMillis;
+    }
+
+    /**
+     * 以下状态仅由分发线程修改
+     */
+    private static final class CameraState {
+
+        /** 相机所属的场景, 同一相机可属于多个场景 */
+        private final List<SceneState> scenes;
+        private final Map<RollupGranularity, RollupSeries> series;
+        private int in;
+        private int out;
+
+        private CameraState(List<SceneState> scenes, Map<RollupGranularity, RollupSeries> series) {
+            this.scenes = scenes;
+            this.series = series;
+        }
+    }
+
+    private static final class SceneState {
+
+        private final Map<RollupGranularity, RollupSeries> series;
+        private int occupancy;
+
+        private SceneState(Map<RollupGranularity, RollupSeries> series) {
+            this.series = series;
+        }
+    }
+}
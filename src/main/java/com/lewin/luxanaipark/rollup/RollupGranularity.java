@@ -0,0 +1,37 @@
+package com.lewin.luxanaipark.rollup;
+
+import java.time.Duration;
+
+/**
+ * 汇总粒度, 窗口按系统时区对齐
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public enum RollupGranularity {
+
+    minute(Duration.ofMinutes(1)),
+
+    hour(Duration.ofHours(1)),
+
+    day(Duration.ofDays(1));
+
+    private final long millis;
+
+    RollupGranularity(Duration size) {
+        this.millis = size.toMillis();
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * @param timestamp    时间戳(毫秒)
+     * @param offsetMillis 时区偏移(毫秒)
+     * @return 时间戳所在窗口的起始时间
+     */
+    public long windowStart(long timestamp, long offsetMillis) {
+        return Math.floorDiv(timestamp + offsetMillis, millis) * millis - offsetMillis;
+    }
+}
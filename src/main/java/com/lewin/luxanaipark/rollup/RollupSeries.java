@@ -0,0 +1,93 @@
+package com.lewin.luxanaipark.rollup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单一粒度的滚动汇总.
+ * <p>
+ * 当前窗口的聚合值保存在字段中, 每次增量 O(1) 更新; 窗口结束时写入定长的原始类型数组环形缓冲, 超出容量的最早窗口被覆盖.
+ * 没有数据的窗口不占用槽位.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+final class RollupSeries {
+
+    private final RollupGranularity granularity;
+    private final long[] starts;
+    private final long[] entries;
+    private final long[] exits;
+    private final int[] peaks;
+    private final int[] samples;
+    private int head;
+    private int size;
+
+    private long currentStart = Long.MIN_VALUE;
+    private long currentEntries;
+    private long currentExits;
+    private int currentPeak;
+    private int currentSamples;
+
+    RollupSeries(RollupGranularity granularity, int capacity) {
+        this.granularity = granularity;
+        this.starts = new long[capacity];
+        this.entries = new long[capacity];
+        this.exits = new long[capacity];
+        this.peaks = new int[capacity];
+        this.samples = new int[capacity];
+    }
+
+    /**
+     * @param timestamp    时间戳(毫秒)
+     * @param offsetMillis 时区偏移(毫秒)
+     * @param in           进入增量
+     * @param out          离开增量
+     * @param occupancy    更新后的在场人数
+     */
+    synchronized void add(long timestamp, long offsetMillis, long in, long out, int occupancy) {
+        var start = granularity.windowStart(timestamp, offsetMillis);
+        if (start != currentStart) {
+            spill();
+            currentStart = start;
+            currentPeak = occupancy;
+        }
+        currentEntries += in;
+        currentExits += out;
+        currentPeak = Math.max(currentPeak, occupancy);
+        currentSamples++;
+    }
+
+    /**
+     * 查询 [from, to) 内开始的窗口, 包含尚未结束的当前窗口
+     */
+    synchronized List<RollupBucket> query(long from, long to) {
+        var result = new ArrayList<RollupBucket>();
+        for (int i = size; i > 0; i--) {
+            var slot = Math.floorMod(head - i, starts.length);
+            if (starts[slot] >= from && starts[slot] < to) {
+                result.add(new RollupBucket(starts[slot], entries[slot], exits[slot], peaks[slot], samples[slot]));
+            }
+        }
+        if (currentSamples > 0 && currentStart >= from && currentStart < to) {
+            result.add(new RollupBucket(currentStart, currentEntries, currentExits, currentPeak, currentSamples));
+        }
+        return result;
+    }
+
+    private void spill() {
+        if (currentSamples > 0) {
+            starts[head] = currentStart;
+            entries[head] = currentEntries;
+            exits[head] = currentExits;
+            peaks[head] = currentPeak;
+            samples[head] = currentSamples;
+            head = (head + 1) % starts.length;
+            size = Math.min(size + 1, starts.length);
+        }
+        currentEntries = 0;
+        currentExits = 0;
+        currentPeak = 0;
+        currentSamples = 0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.lewin.luxanaipark.rollup;
+
+import java.util.List;
+
+/**
+ * 场景汇总, 场景的在场人数为各相机(进 - 出)之和
+ *
+ * @param name        场景名称
+ * @param granularity 汇总粒度
+ * @param buckets     场景整体的汇总窗口
+ * @param cameras     各相机的汇总
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneRollup(String name, RollupGranularity granularity, List<RollupBucket> buckets, List<CameraRollup> cameras) {
+}
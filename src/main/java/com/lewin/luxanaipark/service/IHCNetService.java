@@ -1,5 +1,6 @@
 package com.lewin.luxanaipark.service;
 
+import com.lewin.luxanaipark.device.LoginStats;
 import com.lewin.luxanaipark.entity.CameraInfo;
 import com.lewin.luxanaipark.jna.HCNetSDK;
 
@@ -17,12 +18,17 @@ public interface IHCNetService {
     void init();
 
     /**
-     * 登录到指定设备
+     * 提交设备登录, 登录在后台进行, 失败后自动退避重试
      *
      * @param cameraInfo 相机基础连接信息
      */
     void loginAndStartDeploy(CameraInfo cameraInfo);
 
+    /**
+     * 设备登录指标
+     */
+    LoginStats loginStats();
+
     HCNetSDK sdk();
 
     Integer findUserId(String key);
@@ -4,8 +4,14 @@ import com.lewin.commons.entity.LewinResult;
 import com.lewin.luxanaipark.entity.Scene;
 import com.lewin.luxanaipark.entity.TrafficParams;
 import com.lewin.luxanaipark.entity.TrafficVO;
+import com.lewin.luxanaipark.history.SceneHistory;
+import com.lewin.luxanaipark.rollup.RollupGranularity;
+import com.lewin.luxanaipark.rollup.SceneRollup;
+import com.lewin.luxanaipark.traffic.SceneResponse;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Jun
@@ -20,7 +26,50 @@ public interface ISceneService {
      */
     LewinResult<List<TrafficVO>> traffic(String name);
 
+    /**
+     * 获取指定 scene traffic 的预序列化响应, 快照未变化时直接复用缓存字节
+     *
+     * @param name scene name
+     * @return 场景不存在时返回 null
+     */
+    SceneResponse trafficResponse(String name);
+
+    /**
+     * 获取指定 scene 各相机的客流历史
+     *
+     * @param name scene name
+     * @param from 起始时间(毫秒)
+     * @param to   结束时间(毫秒), 可为空
+     * @param step 点间隔(毫秒), 可为空
+     */
+    LewinResult<SceneHistory> history(String name, long from, Long to, Long step);
+
+    /**
+     * 获取指定 scene 的客流汇总
+     *
+     * @param name        scene name
+     * @param granularity 汇总粒度
+     * @param from        起始时间(毫秒)
+     * @param to          结束时间(毫秒), 可为空
+     */
+    LewinResult<SceneRollup> rollup(String name, RollupGranularity granularity, long from, Long to);
+
     LewinResult<List<Scene>> all();
 
-    LewinResult<Void> clean(TrafficParams params);
+    /**
+     * 清空相机客流数据, 结果在设备响应后异步返回
+     *
+     * @param params 相机地址
+     */
+    CompletableFuture<LewinResult<Void>> clean(TrafficParams params);
+
+    /**
+     * 清空相机客流数据, 超时交由设备调用本身执行(海康为 ISAPI 接收超时, 神目为指令超时), 从调用真正开始时计时;
+     * 返回的 future 完成时设备调用已经结束
+     *
+     * @param params  相机地址
+     * @param timeout 设备调用超时
+     * @param onStart 设备调用开始时回调, 调用未能发起时不会回调
+     */
+    CompletableFuture<LewinResult<Void>> clean(TrafficParams params, Duration timeout, Runnable onStart);
 }
@@ -1,30 +1,30 @@
 package com.lewin.luxanaipark.service.impl;
 
-import com.lewin.commons.entity.Tuple2;
-import com.lewin.commons.entity.Tuples;
 import com.lewin.commons.exception.LewinException;
 import com.lewin.luxanaipark.config.BizProperties;
 import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.device.ChannelTopologyCache;
+import com.lewin.luxanaipark.device.DeviceDescriptor;
+import com.lewin.luxanaipark.device.DeviceLoginManager;
+import com.lewin.luxanaipark.device.DeviceSession;
+import com.lewin.luxanaipark.device.DeviceSessionRegistry;
+import com.lewin.luxanaipark.device.LoginStats;
 import com.lewin.luxanaipark.entity.CameraInfo;
-import com.lewin.luxanaipark.entity.Traffic;
 import com.lewin.luxanaipark.jna.CustomDeviceStateCallback;
 import com.lewin.luxanaipark.jna.CustomExceptionCallBack;
 import com.lewin.luxanaipark.jna.CustomWarningCallback;
 import com.lewin.luxanaipark.jna.HCNetSDK;
 import com.lewin.luxanaipark.service.IHCNetService;
+import com.sun.jna.NativeLong;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
 import javax.annotation.PostConstruct;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 海康设备网络服务接口实现
@@ -34,38 +34,36 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 @Service
+@DependsOn("trafficWal")
 public class HCNetServiceImpl implements IHCNetService, DisposableBean {
 
-    public static final Map<String, List<Tuple2<CameraInfo, Traffic>>> HIK_TRAFFIC_INFO_MAP = new ConcurrentHashMap<>();
-    public static final ScheduledExecutorService SCHEDULED_EXECUTOR = Executors.newScheduledThreadPool(3);
-    public static final Map<Integer, Tuple2<String, HCNetSDK.NET_DVR_DEVICEINFO_V30>> USER_ID_AND_DEVICE_INFO_MAP = new ConcurrentHashMap<>();
+    public static final ScheduledExecutorService SCHEDULED_EXECUTOR = Executors.newSingleThreadScheduledExecutor();
     private final CustomWarningCallback customWarningCallback;
     private final CustomExceptionCallBack customExceptionCallBack;
     private final CustomDeviceStateCallback customDeviceStateCallback;
     private final BizProperties bizProperties;
+    private final DeviceSessionRegistry deviceSessionRegistry;
+    private final ChannelTopologyCache channelTopologyCache;
+    private final DeviceLoginManager loginManager;
 
     public HCNetServiceImpl(CustomWarningCallback customWarningCallback,
                             CustomExceptionCallBack customExceptionCallBack,
                             CustomDeviceStateCallback customDeviceStateCallback,
-                            BizProperties bizProperties) {
+                            BizProperties bizProperties,
+                            DeviceSessionRegistry deviceSessionRegistry,
+                            ChannelTopologyCache channelTopologyCache) {
         this.customWarningCallback = customWarningCallback;
         this.customExceptionCallBack = customExceptionCallBack;
         this.customDeviceStateCallback = customDeviceStateCallback;
         this.bizProperties = bizProperties;
+        this.deviceSessionRegistry = deviceSessionRegistry;
+        this.channelTopologyCache = channelTopologyCache;
+        this.loginManager = new DeviceLoginManager(bizProperties.getHikLogin(), this::login);
     }
 
     @PostConstruct
     public void launch() {
-        // 此处的处理类似 PassengerFlowHandler
         var sceneList = bizProperties.getSceneList();
-        for (var scene : sceneList) {
-            var list = HIK_TRAFFIC_INFO_MAP.computeIfAbsent(scene.getName(), k -> new ArrayList<>());
-            for (CameraInfo cameraInfo : scene.getCameraInfoList()) {
-                if (CameraTypeEnum.hik == cameraInfo.getType()) {
-                    list.add(Tuples.of(cameraInfo, new Traffic().setOut(0).setIn(0)));
-                }
-            }
-        }
 
         // sdk 处理
         var cameraInfoList = sceneList.stream()
@@ -81,14 +79,8 @@ public class HCNetServiceImpl implements IHCNetService, DisposableBean {
         // 执行初始化函数
         init();
 
-        // 开始连接设备
-        for (var cameraInfo : cameraInfoList) {
-            try {
-                loginAndStartDeploy(cameraInfo);
-            } catch (Exception e) {
-                log.warn("设备[{}:{}]注册失败，五秒后重新注册...", cameraInfo.getIp(), cameraInfo.getPort());
-            }
-        }
+        // 开始连接设备, 登录并发进行, 失败后退避重试
+        loginManager.loginAll(cameraInfoList);
     }
 
     @Override
@@ -102,6 +94,12 @@ public class HCNetServiceImpl implements IHCNetService, DisposableBean {
             throw new LewinException("sdk log 配置失败，错误码: {}", sdk().NET_DVR_GetLastError());
         }
 
+        // 限制单次登录的连接等待时间
+        var connectTimeout = (int) bizProperties.getHikLogin().getConnectTimeout().toMillis();
+        if (!sdk().NET_DVR_SetConnectTime(connectTimeout, 1)) {
+            log.warn("sdk 连接超时设置失败，错误码: {}", sdk().NET_DVR_GetLastError());
+        }
+
         // 异常函数注册
         if (!sdk().NET_DVR_SetExceptionCallBack_V30(0, 0, customExceptionCallBack, null)) {
             throw new LewinException("sdk 异常函数注册失败");
@@ -131,6 +129,20 @@ public class HCNetServiceImpl implements IHCNetService, DisposableBean {
 
     @Override
     public void loginAndStartDeploy(CameraInfo cameraInfo) {
+        loginManager.login(cameraInfo);
+    }
+
+    @Override
+    public LoginStats loginStats() {
+        return loginManager.stats();
+    }
+
+    /**
+     * 登录设备并布防, 由 {@link DeviceLoginManager} 在登录线程中调用
+     *
+     * @return 是否登录成功
+     */
+    private boolean login(CameraInfo cameraInfo) {
         final var ip = cameraInfo.getIp();
         final var port = cameraInfo.getPort();
         final var uname = cameraInfo.getUname();
@@ -142,25 +154,47 @@ public class HCNetServiceImpl implements IHCNetService, DisposableBean {
         var userId = sdk().NET_DVR_Login_V30(ip, port.shortValue(), uname, passwd, deviceInfo);
         var iUserId = userId.intValue();
         if (iUserId == -1L) {
-            log.error("设备[{}]注册失败, 错误码: {}. 服务将于五秒后尝试重连...", key, sdk().NET_DVR_GetLastError());
-            SCHEDULED_EXECUTOR.schedule(() -> this.loginAndStartDeploy(cameraInfo), 5, TimeUnit.SECONDS);
-            return;
+            log.error("设备[{}]注册失败, 错误码: {}", key, sdk().NET_DVR_GetLastError());
+            return false;
         }
 
-        // 用户 id 设备关联 map
-        USER_ID_AND_DEVICE_INFO_MAP.put(iUserId, Tuples.of(key, deviceInfo));
+        // 提取设备描述后释放结构体, 建立会话并替换该设备上一次登录的会话
+        var descriptor = DeviceDescriptor.extract(deviceInfo);
+        var previous = deviceSessionRegistry.open(new DeviceSession(iUserId, key, -1, descriptor));
+        if (previous != null && previous.userId() != iUserId) {
+            logout(previous);
+        }
 
         // 日志打印
-        log.info("设备信息: {}", deviceInfo);
+        log.info("设备信息: {}", descriptor);
         log.info("注册到设备[{}]成功, 用户id: {}", key, iUserId);
 
         // 开始布防
-        var errorCode = sdk().NET_DVR_SetupAlarmChan_V30(userId);
-        if (errorCode.intValue() == -1) {
-            log.error("设备布防失败, 错误码: {}", errorCode.intValue());
+        var alarmHandle = sdk().NET_DVR_SetupAlarmChan_V30(userId);
+        if (alarmHandle.intValue() == -1) {
+            log.error("设备布防失败, 错误码: {}", sdk().NET_DVR_GetLastError());
         } else {
+            deviceSessionRegistry.attachAlarmHandle(iUserId, alarmHandle.intValue());
             log.info("布防成功...");
         }
+
+        // 缓存通道启用配置, 供设备状态回调使用
+        var session = deviceSessionRegistry.byUserId(iUserId);
+        if (session != null) {
+            channelTopologyCache.load(session);
+        }
+        return true;
+    }
+
+    /**
+     * 撤防并注销旧会话
+     */
+    private void logout(DeviceSession session) {
+        if (session.alarmHandle() >= 0) {
+            sdk().NET_DVR_CloseAlarmChan_V30(new NativeLong(session.alarmHandle()));
+        }
+        sdk().NET_DVR_Logout(new NativeLong(session.userId()));
+        log.info("设备[{}]旧会话[{}]已注销", session.key(), session.userId());
     }
 
     @Override
@@ -170,18 +204,18 @@ public class HCNetServiceImpl implements IHCNetService, DisposableBean {
 
     @Override
     public Integer findUserId(String key) {
-        for (var entry : USER_ID_AND_DEVICE_INFO_MAP.entrySet()) {
-            var userId = entry.getKey();
-            var k = entry.getValue().t0();
-            if (key.equals(k)) {
-                return userId;
-            }
-        }
-        return null;
+        var session = deviceSessionRegistry.byKey(key);
+        return session == null ? null : session.userId();
     }
 
     @Override
     public void destroy() {
+        loginManager.shutdown();
+        for (var session : deviceSessionRegistry.all()) {
+            if (deviceSessionRegistry.close(session.userId()) != null) {
+                logout(session);
+            }
+        }
         log.info("释放 SDK 资源");
         sdk().NET_DVR_Cleanup();
     }
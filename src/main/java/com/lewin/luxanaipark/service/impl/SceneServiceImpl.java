@@ -1,35 +1,43 @@
 package com.lewin.luxanaipark.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.lewin.commons.constants.CommonResponseCode;
 import com.lewin.commons.entity.LewinResult;
-import com.lewin.commons.entity.Tuple2;
 import com.lewin.commons.exception.LewinException;
 import com.lewin.luxanaipark.camera.PassengerFlowInitializer;
 import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.device.DeviceSessionRegistry;
+import com.lewin.luxanaipark.device.WorkStateRegistry;
 import com.lewin.luxanaipark.entity.*;
-import com.lewin.luxanaipark.handler.PassengerFlowHandler;
-import com.lewin.luxanaipark.jna.CustomDeviceStateCallback;
-import com.lewin.luxanaipark.jna.HCNetSDK;
-import com.lewin.luxanaipark.service.IHCNetService;
+import com.lewin.luxanaipark.handler.DeepcamAction;
+import com.lewin.luxanaipark.handler.DeepcamCommands;
+import com.lewin.luxanaipark.history.SceneHistory;
+import com.lewin.luxanaipark.history.TrafficHistoryStore;
+import com.lewin.luxanaipark.isapi.IsapiClient;
+import com.lewin.luxanaipark.isapi.IsapiMethod;
+import com.lewin.luxanaipark.isapi.IsapiResponse;
+import com.lewin.luxanaipark.rollup.RollupEngine;
+import com.lewin.luxanaipark.rollup.RollupGranularity;
+import com.lewin.luxanaipark.rollup.SceneRollup;
 import com.lewin.luxanaipark.service.ISceneService;
-import com.sun.jna.NativeLong;
-import io.netty.buffer.Unpooled;
+import com.lewin.luxanaipark.traffic.SceneReadTracker;
+import com.lewin.luxanaipark.traffic.SceneResponse;
+import com.lewin.luxanaipark.traffic.SceneResponseCache;
+import com.lewin.luxanaipark.traffic.SceneSnapshotStore;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.Stream;
-
-import static com.lewin.luxanaipark.job.TrafficJob.FUTURE_TASK_MAP;
 
 /**
  * 流量服务实现
@@ -39,65 +47,85 @@ import static com.lewin.luxanaipark.job.TrafficJob.FUTURE_TASK_MAP;
  */
 @Slf4j
 @Service
-public class SceneServiceImpl implements ISceneService {
+public class SceneServiceImpl implements ISceneService, DisposableBean {
 
-    public static final int ISAPI_DATA_LEN = 1024 * 1024;
-    public static final int ISAPI_STATUS_LEN = 4 * 4096;
+    private static final Duration CLEAN_TIMEOUT = Duration.ofSeconds(3);
 
     private final BizProperties bizProperties;
-    private final String streamUrlPrefix;
-    private final IHCNetService hcNetService;
+    private final TrafficRegistry trafficRegistry;
+    private final SceneReadTracker sceneReadTracker;
+    private final SceneSnapshotStore sceneSnapshotStore;
+    private final SceneResponseCache sceneResponseCache;
+    private final TrafficHistoryStore trafficHistoryStore;
+    private final RollupEngine rollupEngine;
+    private final IsapiClient isapiClient;
+    private final DeviceSessionRegistry deviceSessionRegistry;
+    private final WorkStateRegistry workStateRegistry;
+    private final ExecutorService isapiExecutor;
     public final static XmlMapper XML_MAPPER = new XmlMapper();
 
     public SceneServiceImpl(BizProperties bizProperties,
-                            IHCNetService hcNetService) {
+                            TrafficRegistry trafficRegistry,
+                            SceneReadTracker sceneReadTracker,
+                            SceneSnapshotStore sceneSnapshotStore,
+                            SceneResponseCache sceneResponseCache,
+                            TrafficHistoryStore trafficHistoryStore,
+                            RollupEngine rollupEngine,
+                            IsapiClient isapiClient,
+                            DeviceSessionRegistry deviceSessionRegistry,
+                            WorkStateRegistry workStateRegistry) {
         this.bizProperties = bizProperties;
-        this.hcNetService = hcNetService;
-        this.streamUrlPrefix = this.bizProperties.getStreamUrlPrefix();
+        this.trafficRegistry = trafficRegistry;
+        this.sceneReadTracker = sceneReadTracker;
+        this.sceneSnapshotStore = sceneSnapshotStore;
+        this.sceneResponseCache = sceneResponseCache;
+        this.trafficHistoryStore = trafficHistoryStore;
+        this.rollupEngine = rollupEngine;
+        this.isapiClient = isapiClient;
+        this.deviceSessionRegistry = deviceSessionRegistry;
+        this.workStateRegistry = workStateRegistry;
+        // 与 ISAPI 缓冲区池同等大小, 多出的线程只会等待缓冲区
+        this.isapiExecutor = Executors.newFixedThreadPool(Math.max(1, bizProperties.getIsapi().getPoolSize()),
+                new DefaultThreadFactory("hik-isapi", true));
     }
 
     @Override
     public LewinResult<List<TrafficVO>> traffic(String name) {
-        var l1 = PassengerFlowHandler.DEEPCAM_TRAFFIC_INFO_MAP.get(name);
-        var l2 = HCNetServiceImpl.HIK_TRAFFIC_INFO_MAP.get(name);
-        if (ObjectUtils.isEmpty(l1) && l2.isEmpty()) {
+        var snapshot = sceneSnapshotStore.get(name);
+        if (snapshot == null || ObjectUtils.isEmpty(snapshot.cameras())) {
             return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "场景数据不存在");
         }
-        if (ObjectUtils.isEmpty(l1)) {
-            l1 = new ArrayList<>();
+        sceneReadTracker.touch(name);
+
+        // 快照不可变, 所有相机的计数与在线状态来自同一时刻
+        return LewinResult.ok(snapshot.cameras());
+    }
+
+    @Override
+    public SceneResponse trafficResponse(String name) {
+        var response = sceneResponseCache.get(name);
+        if (response != null) {
+            sceneReadTracker.touch(name);
         }
-        if (ObjectUtils.isEmpty(l2)) {
-            l2 = new ArrayList<>();
+        return response;
+    }
+
+    @Override
+    public LewinResult<SceneHistory> history(String name, long from, Long to, Long step) {
+        var history = trafficHistoryStore.query(name, from, to, step);
+        if (history == null) {
+            return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "场景数据不存在");
         }
-        var list = Stream.concat(l1.stream(), l2.stream()).toList();
-
-        //
-        var rst = list.stream().map(t -> {
-            var cameraInfo = t.t0();
-            var traffic = t.t1();
-            var trafficVO = new TrafficVO()
-                    .setIn(traffic.getIn())
-                    .setOut(traffic.getOut())
-                    .setName(cameraInfo.getName())
-                    .setIp(cameraInfo.getIp())
-                    .setPort(cameraInfo.getPort())
-                    .setLocation(cameraInfo.getLocation())
-                    .setStreamUrl(String.format("%s%s", this.streamUrlPrefix, t.t0().rtspUrl()));
-            switch (cameraInfo.getType()) {
-                case deepcam -> {
-                    var k = cameraInfo.key();
-                    var netClient = PassengerFlowInitializer.NET_CLIENT_MAP.get(k);
-                    trafficVO.setOnlineFlag(netClient.isActive());
-                }
-                case hik -> {
-                    var k = cameraInfo.key();
-                    trafficVO.setOnlineFlag(CustomDeviceStateCallback.DEVICE_ONLINE_MAP.containsKey(k));
-                }
-            }
+        return LewinResult.ok(history);
+    }
 
-            return trafficVO;
-        }).toList();
-        return LewinResult.ok(rst);
+    @Override
+    public LewinResult<SceneRollup> rollup(String name, RollupGranularity granularity, long from, Long to) {
+        var rollup = rollupEngine.query(name, granularity, from, to == null ? Long.MAX_VALUE : to);
+        if (rollup == null) {
+            return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "场景数据不存在");
+        }
+        return LewinResult.ok(rollup);
     }
 
     @Override
@@ -107,130 +135,78 @@ public class SceneServiceImpl implements ISceneService {
     }
 
     @Override
-    public LewinResult<Void> clean(TrafficParams params) {
+    public CompletableFuture<LewinResult<Void>> clean(TrafficParams params) {
+        return clean(params, null, () -> {
+        });
+    }
+
+    @Override
+    public CompletableFuture<LewinResult<Void>> clean(TrafficParams params, Duration timeout, Runnable onStart) {
         var key = String.format("%s:%s", params.getIp(), params.getPort());
 
         // 通过 key 检查设备类型
-        var tuple2 = HCNetServiceImpl.HIK_TRAFFIC_INFO_MAP.values()
-                .stream()
-                .flatMap(Collection::stream)
-                .filter(t -> t.t0().key().equals(key))
-                .findFirst();
-        if (tuple2.isPresent()) {
+        var counter = trafficRegistry.byKey(key);
+        if (counter != null && CameraTypeEnum.hik == counter.type()) {
             // 检查设备是否在线
-            if (!CustomDeviceStateCallback.DEVICE_ONLINE_MAP.containsKey(key)) {
-                return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备离线，无法执行指令");
+            if (!workStateRegistry.isOnline(key)) {
+                return CompletableFuture.completedFuture(LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备离线，无法执行指令"));
             }
 
-            var userId = hcNetService.findUserId(key);
-            if (userId == null) {
+            var session = deviceSessionRegistry.byKey(key);
+            if (session == null) {
                 log.error("userId 为空!!!");
                 throw new LewinException("hik device userId is null!!!");
             }
+            var userId = session.userId();
 
-            if (resetCount(userId)) {
-                // 数据清零
-                var traffic = tuple2.get().t1();
-                traffic.clear();
+            // ISAPI 调用为阻塞调用, 放到独立线程池执行
+            var recvTimeout = timeout == null ? bizProperties.getIsapi().getRecvTimeout() : timeout;
+            return CompletableFuture.supplyAsync(() -> {
+                onStart.run();
+                if (resetCount(userId, recvTimeout)) {
+                    // 数据清零
+                    counter.clear();
 
-                return LewinResult.ok();
-            }
-            return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "客流数据清理失败!");
-        }
-
-        if (PassengerFlowInitializer.NET_CLIENT_MAP.containsKey(key)) {
-            var netClient = PassengerFlowInitializer.NET_CLIENT_MAP.get(key);
-            if (netClient == null) {
-                return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "未能找到相机连接对象");
-            }
-            if (!netClient.isActive()) {
-                return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备离线，无法执行指令");
-            }
-            var s = """
-                    {"action":"clear_person_count"}
-                    """;
-            netClient.writeAndFlush(Unpooled.wrappedBuffer(s.getBytes(StandardCharsets.UTF_8)));
-            var f = new CompletableFuture<Boolean>();
-            FUTURE_TASK_MAP.put(key, f);
-            try {
-                var result = f.get(3, TimeUnit.SECONDS);
-                if (!result) {
-                    return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "客流数据清理失败!");
+                    return LewinResult.ok();
                 }
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-            } catch (TimeoutException e) {
-                return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备响应超时");
-            }
-            return LewinResult.ok();
+                return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "客流数据清理失败!");
+            }, isapiExecutor);
         }
 
-        return LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "未能找到相机连接对象");
-    }
-
-    private boolean resetCount(Integer userId) {
-        // 1. 配置客流量统计数据重置
-        // PUT /ISAPI/System/Video/inputs/channels/<channelID>/counting/resetCount
-        var strURL = "PUT /ISAPI/System/Video/inputs/channels/1/counting/resetCount";
-
-        // 输入指令组装
-        var struXMLInput = new HCNetSDK.NET_DVR_XML_CONFIG_INPUT();
-        struXMLInput.read();
-        struXMLInput.dwSize = struXMLInput.size();
-        var ptrUrl = new HCNetSDK.BYTE_ARRAY(strURL.length() + 1);
-        System.arraycopy(strURL.getBytes(), 0, ptrUrl.byValue, 0, strURL.length());
-        ptrUrl.write();
-        struXMLInput.lpRequestUrl = ptrUrl.getPointer();
-        struXMLInput.dwRequestUrlLen = strURL.length();
-        struXMLInput.write();
-
-        // 输出指令组装
-        HCNetSDK.BYTE_ARRAY ptrStatusByte = new HCNetSDK.BYTE_ARRAY(ISAPI_STATUS_LEN);
-        ptrStatusByte.read();
-
-        HCNetSDK.BYTE_ARRAY ptrOutByte = new HCNetSDK.BYTE_ARRAY(ISAPI_DATA_LEN);
-        ptrOutByte.read();
-
-        var struXMLOutput = new HCNetSDK.NET_DVR_XML_CONFIG_OUTPUT();
-        struXMLOutput.read();
-        struXMLOutput.dwSize = struXMLOutput.size();
-        struXMLOutput.lpOutBuffer = ptrOutByte.getPointer();
-        struXMLOutput.dwOutBufferSize = ptrOutByte.size();
-        struXMLOutput.lpStatusBuffer = ptrStatusByte.getPointer();
-        struXMLOutput.dwStatusSize = ptrStatusByte.size();
-        struXMLOutput.write();
-
-        // 发送指令
-        if (sdk().NET_DVR_STDXMLConfig(new NativeLong(userId), struXMLInput.getPointer(), struXMLOutput.getPointer())) {
-            struXMLOutput.read();
-            ptrOutByte.read();
-            ptrStatusByte.read();
-
-            var strStatus = new String(ptrStatusByte.byValue).trim();
-
-            try {
-                var node = XML_MAPPER.readTree(strStatus);
-                Integer statusCode = Optional.of(node)
-                        .map(t -> t.get("statusCode"))
-                        .map(JsonNode::asInt)
-                        .orElse(null);
-                if (Objects.equals(1, statusCode)) {
-                    // 成功
-                    return true;
-                }
-            } catch (JsonProcessingException e) {
-                log.error("strStatus 解析失败: "+ e.getMessage(), e);
-                throw new LewinException(e);
-            }
-        } else {
-            int err = hcNetService.sdk().NET_DVR_GetLastError();
-            log.warn("NET_DVR_STDXMLConfig失败，错误号：{}", err);
+        var netClient = PassengerFlowInitializer.NET_CLIENT_MAP.get(key);
+        if (netClient == null) {
+            return CompletableFuture.completedFuture(LewinResult.fail(CommonResponseCode.DATA_NOT_EXIST, "未能找到相机连接对象"));
+        }
+        if (!netClient.isActive()) {
+            return CompletableFuture.completedFuture(LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备离线，无法执行指令"));
         }
+        var requestTimeout = timeout == null ? CLEAN_TIMEOUT : timeout;
+        onStart.run();
+        return netClient.request(DeepcamAction.CLEAR_PERSON_COUNT, DeepcamCommands.clearPersonCount(), requestTimeout)
+                .handle((ret, t) -> {
+                    if (t == null) {
+                        return "ok".equalsIgnoreCase(ret)
+                                ? LewinResult.ok()
+                                : LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "客流数据清理失败!");
+                    }
+                    if (t instanceof TimeoutException) {
+                        return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "设备响应超时");
+                    }
+                    log.warn("[{}]客流数据清理失败: {}", key, t.toString());
+                    return LewinResult.fail(CommonResponseCode.EXECUTION_ERR, "客流数据清理失败!");
+                });
+    }
 
-        return false;
+    @Override
+    public void destroy() {
+        isapiExecutor.shutdownNow();
     }
 
-    private HCNetSDK sdk() {
-        return HCNetSDK.INSTANCE;
+    private boolean resetCount(Integer userId, Duration recvTimeout) {
+        // 配置客流量统计数据重置
+        // PUT /ISAPI/System/Video/inputs/channels/<channelID>/counting/resetCount
+        var response = isapiClient.execute(userId, IsapiMethod.PUT,
+                "/ISAPI/System/Video/inputs/channels/1/counting/resetCount", null, recvTimeout);
+        return response.statusCode() == IsapiResponse.STATUS_OK;
     }
 }
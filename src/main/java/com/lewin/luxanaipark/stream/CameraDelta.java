@@ -0,0 +1,17 @@
+package com.lewin.luxanaipark.stream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 单台相机的增量, 只包含发生变化的字段
+ *
+ * @param name       相机名称
+ * @param in         进
+ * @param out        出
+ * @param onlineFlag 在线状态
+ * @author Jun
+ * @since 1.0.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CameraDelta(String name, Integer in, Integer out, Boolean onlineFlag) {
+}
@@ -0,0 +1,16 @@
+package com.lewin.luxanaipark.stream;
+
+import java.util.List;
+
+/**
+ * 场景增量, 客户端在版本为 from 的快照上应用 changes 后得到版本为 version 的快照
+ *
+ * @param name    场景名称
+ * @param from    基准快照版本
+ * @param version 目标快照版本
+ * @param changes 发生变化的相机
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneDelta(String name, long from, long version, List<CameraDelta> changes) {
+}
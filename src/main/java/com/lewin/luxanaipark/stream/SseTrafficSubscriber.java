@@ -0,0 +1,40 @@
+package com.lewin.luxanaipark.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * SSE 订阅者, 事件名为消息类型, 事件 id 为快照版本
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public class SseTrafficSubscriber extends TrafficSubscriber {
+
+    private final SseEmitter emitter;
+
+    public SseTrafficSubscriber(String sceneName, long intervalMillis, SseEmitter emitter) {
+        super(sceneName, intervalMillis);
+        this.emitter = emitter;
+    }
+
+    @Override
+    protected void send(String type, long version, String json) throws IOException {
+        emitter.send(SseEmitter.event()
+                .name(type)
+                .id(String.valueOf(version))
+                .data(json, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    protected void heartbeat() throws IOException {
+        emitter.send(SseEmitter.event().comment("ping"));
+    }
+
+    @Override
+    protected void close() {
+        emitter.complete();
+    }
+}
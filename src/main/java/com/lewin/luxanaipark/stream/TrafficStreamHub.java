@@ -0,0 +1,321 @@
+package com.lewin.luxanaipark.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lewin.commons.exception.LewinException;
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.StreamProperties;
+import com.lewin.luxanaipark.entity.TrafficVO;
+import com.lewin.luxanaipark.traffic.SceneReadTracker;
+import com.lewin.luxanaipark.traffic.SceneSnapshot;
+import com.lewin.luxanaipark.traffic.SceneSnapshotStore;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 场景客流推送中心.
+ * <p>
+ * 调度线程按固定节拍扫描订阅者: 到达推送时间且场景快照版本有变化时, 以订阅者最近一次收到的快照为基准生成增量.
+ * 同一节拍内, 同一场景的全量快照和同一基准版本的增量只序列化一次, 由所有订阅者共享. 实际发送在推送线程池中进行,
+ * 每个订阅者最多一条在途消息, 发送超时的订阅者会被断开.
+ * <p>
+ * SSE 的写操作是阻塞的, 断开连接并不能让已阻塞的写操作立即返回. 发送超时后该线程被视为阻塞线程, 推送线程池临时补充一个线程,
+ * 写操作返回后再收回, 保证可用推送线程数不因慢连接而减少; 补充数量受 {@link StreamProperties#getMaxStalledSends()} 限制.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TrafficStreamHub implements DisposableBean {
+
+    private static final long TICK_MILLIS = 100;
+
+    private final Map<String, Set<TrafficSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final SceneSnapshotStore sceneSnapshotStore;
+    private final SceneReadTracker sceneReadTracker;
+    private final ObjectMapper objectMapper;
+    private final StreamProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor sender;
+    private final int sendThreads;
+    /** 已补充线程的阻塞发送数, 仅在 this 锁内修改 */
+    private int stalledSends;
+
+    public TrafficStreamHub(BizProperties bizProperties,
+                            SceneSnapshotStore sceneSnapshotStore,
+                            SceneReadTracker sceneReadTracker,
+                            ObjectMapper objectMapper) {
+        this.properties = bizProperties.getStream();
+        this.sceneSnapshotStore = sceneSnapshotStore;
+        this.sceneReadTracker = sceneReadTracker;
+        this.objectMapper = objectMapper;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("traffic-stream", true));
+        this.sendThreads = Math.max(1, properties.getSendThreads());
+        this.sender = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new DefaultThreadFactory("traffic-stream-send", true));
+        this.scheduler.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅者请求的推送间隔不得小于配置的最小间隔
+     */
+    public long intervalMillis(Long requested) {
+        var min = properties.getMinInterval().toMillis();
+        return requested == null ? min : Math.max(min, requested);
+    }
+
+    /**
+     * 校验场景并占用订阅名额, 成功后需调用 {@link #subscribe(TrafficSubscriber)} 或 {@link #release()}
+     */
+    public void reserve(String sceneName) {
+        if (sceneSnapshotStore.get(sceneName) == null) {
+            throw new LewinException("场景[{}]不存在", sceneName);
+        }
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new LewinException("订阅数量已达上限[{}]", properties.getMaxSubscribers());
+        }
+    }
+
+    public void release() {
+        subscriberCount.decrementAndGet();
+    }
+
+    /**
+     * 加入订阅, 下一个节拍推送全量快照
+     */
+    public void subscribe(TrafficSubscriber subscriber) {
+        subscribers.computeIfAbsent(subscriber.sceneName(), k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        log.debug("场景[{}]新增订阅者, 当前订阅总数[{}]", subscriber.sceneName(), subscriberCount.get());
+    }
+
+    /**
+     * 移除订阅, 可重复调用
+     */
+    public void unsubscribe(TrafficSubscriber subscriber) {
+        var set = subscribers.get(subscriber.sceneName());
+        if (set != null && set.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    private void tick() {
+        try {
+            var now = System.currentTimeMillis();
+            for (var entry : subscribers.entrySet()) {
+                var set = entry.getValue();
+                if (set.isEmpty()) {
+                    continue;
+                }
+                // 有订阅者的场景视为正被查看
+                sceneReadTracker.touch(entry.getKey());
+                var current = sceneSnapshotStore.get(entry.getKey());
+                if (current != null) {
+                    dispatch(set, current, now);
+                }
+            }
+        } catch (Throwable t) {
+            log.error("客流推送调度异常: " + t.getMessage(), t);
+        }
+    }
+
+    private void dispatch(Set<TrafficSubscriber> set, SceneSnapshot current, long now) {
+        String full = null;
+        Map<Long, String> deltas = null;
+        var sendTimeout = properties.getSendTimeout().toMillis();
+        var heartbeat = properties.getHeartbeat().toMillis();
+
+        for (var subscriber : set) {
+            if (subscriber.isBusy()) {
+                if (now - subscriber.sendStartedAt() > sendTimeout) {
+                    log.info("场景[{}]订阅者发送超时, 断开连接", subscriber.sceneName());
+                    stalled(subscriber);
+                    drop(subscriber);
+                }
+                continue;
+            }
+            if (!subscriber.isDue(now)) {
+                continue;
+            }
+
+            var last = subscriber.lastSent();
+            if (last != null && last.version() == current.version()) {
+                if (now - subscriber.lastSendAt() >= heartbeat && subscriber.acquire(now)) {
+                    sender.execute(() -> sendHeartbeat(subscriber, last, now));
+                }
+                continue;
+            }
+
+            String type;
+            String payload;
+            String deltaPayload = null;
+            if (last != null) {
+                if (deltas == null) {
+                    deltas = new HashMap<>();
+                }
+                deltaPayload = deltas.computeIfAbsent(last.version(), v -> serialize(delta(last, current)));
+            }
+            if (deltaPayload != null && !deltaPayload.isEmpty()) {
+                type = TrafficSubscriber.DELTA;
+                payload = deltaPayload;
+            } else {
+                if (full == null) {
+                    full = serialize(current);
+                }
+                type = TrafficSubscriber.SNAPSHOT;
+                payload = full;
+            }
+            if (subscriber.acquire(now)) {
+                sender.execute(() -> send(subscriber, type, current, payload, now));
+            }
+        }
+    }
+
+    private void send(TrafficSubscriber subscriber, String type, SceneSnapshot snapshot, String payload, long now) {
+        try {
+            subscriber.send(type, snapshot.version(), payload);
+            subscriber.sent(snapshot, now);
+        } catch (Exception e) {
+            log.debug("场景[{}]推送失败: {}", subscriber.sceneName(), e.getMessage());
+            drop(subscriber);
+        } finally {
+            if (subscriber.release()) {
+                resumed();
+            }
+        }
+    }
+
+    private void sendHeartbeat(TrafficSubscriber subscriber, SceneSnapshot snapshot, long now) {
+        try {
+            subscriber.heartbeat();
+            subscriber.sent(snapshot, now);
+        } catch (Exception e) {
+            log.debug("场景[{}]心跳失败: {}", subscriber.sceneName(), e.getMessage());
+            drop(subscriber);
+        } finally {
+            if (subscriber.release()) {
+                resumed();
+            }
+        }
+    }
+
+    /**
+     * 发送超时且仍在发送中时, 补充一个推送线程
+     */
+    private synchronized void stalled(TrafficSubscriber subscriber) {
+        if (stalledSends >= properties.getMaxStalledSends()) {
+            log.warn("场景[{}]推送线程阻塞, 阻塞线程数已达上限[{}], 不再补充推送线程",
+                    subscriber.sceneName(), properties.getMaxStalledSends());
+            return;
+        }
+        if (subscriber.stall()) {
+            stalledSends++;
+            resize();
+        }
+    }
+
+    /**
+     * 阻塞的发送返回, 收回补充的推送线程
+     */
+    private synchronized void resumed() {
+        if (stalledSends > 0) {
+            stalledSends--;
+            resize();
+        }
+    }
+
+    private void resize() {
+        var size = sendThreads + stalledSends;
+        if (size > sender.getMaximumPoolSize()) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    private void drop(TrafficSubscriber subscriber) {
+        unsubscribe(subscriber);
+        subscriber.close();
+    }
+
+    /**
+     * @return 两个快照的相机布局一致时返回增量, 否则返回 null(需推送全量快照)
+     */
+    static SceneDelta delta(SceneSnapshot from, SceneSnapshot to) {
+        var a = from.cameras();
+        var b = to.cameras();
+        if (a.size() != b.size()) {
+            return null;
+        }
+        List<CameraDelta> changes = new ArrayList<>();
+        for (int i = 0; i < a.size(); i++) {
+            TrafficVO p = a.get(i);
+            TrafficVO n = b.get(i);
+            if (!Objects.equals(p.name(), n.name())) {
+                return null;
+            }
+            if (p == n) {
+                continue;
+            }
+            var countChanged = !Objects.equals(p.in(), n.in()) || !Objects.equals(p.out(), n.out());
+            var onlineChanged = !Objects.equals(p.onlineFlag(), n.onlineFlag());
+            if (countChanged || onlineChanged) {
+                changes.add(new CameraDelta(
+                        n.name(),
+                        countChanged ? n.in() : null,
+                        countChanged ? n.out() : null,
+                        onlineChanged ? n.onlineFlag() : null
+                ));
+            }
+        }
+        return new SceneDelta(to.name(), from.version(), to.version(), List.copyOf(changes));
+    }
+
+    /**
+     * @return JSON 文本, value 为 null 时返回空串
+     */
+    private String serialize(Object value) {
+        if (value == null) {
+            return "";
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new LewinException("推送消息序列化失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+        for (var set : subscribers.values()) {
+            set.forEach(TrafficSubscriber::close);
+        }
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package com.lewin.luxanaipark.stream;
+
+import com.lewin.luxanaipark.traffic.SceneSnapshot;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 场景客流订阅者.
+ * <p>
+ * 每个订阅者同一时刻最多只有一条在途消息; 上一条未发送完成时跳过本轮, 之后以最近一次成功发送的快照为基准合并增量,
+ * 慢消费者只会收到更少、更大的增量, 服务端不会为其无限缓冲.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public abstract class TrafficSubscriber {
+
+    public static final String SNAPSHOT = "snapshot";
+    public static final String DELTA = "delta";
+
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int STALLED = 2;
+
+    private final String sceneName;
+    private final long intervalMillis;
+    /** {@link #IDLE}, {@link #BUSY} 或 {@link #STALLED}(在途消息已超时, 发送线程仍阻塞) */
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+    /** 以下字段仅由推送调度线程读写, 或在 busy 保护下由推送线程写入 */
+    private volatile SceneSnapshot lastSent;
+    private volatile long sendStartedAt;
+    private volatile long lastSendAt;
+    private long nextDueAt;
+
+    protected TrafficSubscriber(String sceneName, long intervalMillis) {
+        this.sceneName = sceneName;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public String sceneName() {
+        return sceneName;
+    }
+
+    /**
+     * 发送一条消息
+     *
+     * @param type    {@link #SNAPSHOT} 或 {@link #DELTA}
+     * @param version 快照版本
+     * @param json    消息体
+     */
+    protected abstract void send(String type, long version, String json) throws IOException;
+
+    /**
+     * 发送心跳
+     */
+    protected abstract void heartbeat() throws IOException;
+
+    /**
+     * 关闭订阅, 可重复调用
+     */
+    protected abstract void close();
+
+    SceneSnapshot lastSent() {
+        return lastSent;
+    }
+
+    void sent(SceneSnapshot snapshot, long now) {
+        lastSent = snapshot;
+        lastSendAt = now;
+    }
+
+    long lastSendAt() {
+        return lastSendAt;
+    }
+
+    long sendStartedAt() {
+        return sendStartedAt;
+    }
+
+    boolean isBusy() {
+        return state.get() != IDLE;
+    }
+
+    /**
+     * @return 是否到达推送时间
+     */
+    boolean isDue(long now) {
+        return now >= nextDueAt;
+    }
+
+    /**
+     * 占用发送权, 并将下次推送时间推迟一个间隔
+     *
+     * @return 没有在途消息时返回 true
+     */
+    boolean acquire(long now) {
+        if (!state.compareAndSet(IDLE, BUSY)) {
+            return false;
+        }
+        sendStartedAt = now;
+        nextDueAt = now + intervalMillis;
+        return true;
+    }
+
+    /**
+     * 将超时的在途消息标记为阻塞, 每条在途消息最多成功一次
+     *
+     * @return 消息仍在发送中时返回 true
+     */
+    boolean stall() {
+        return state.compareAndSet(BUSY, STALLED);
+    }
+
+    /**
+     * 释放发送权
+     *
+     * @return 本次发送是否已被标记为阻塞
+     */
+    boolean release() {
+        return state.getAndSet(IDLE) == STALLED;
+    }
+}
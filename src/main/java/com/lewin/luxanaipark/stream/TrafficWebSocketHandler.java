@@ -0,0 +1,76 @@
+package com.lewin.luxanaipark.stream;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.config.StreamProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 场景客流 WebSocket 推送, 连接地址 /scene/traffic/ws?name={场景名称}&interval={推送间隔毫秒, 可选}.
+ * <p>
+ * 会话使用 {@link ConcurrentWebSocketSessionDecorator} 包装, 发送超时或缓冲超过上限时直接断开, 慢消费者不会拖住推送线程.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TrafficWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String SUBSCRIBER = "trafficSubscriber";
+
+    private final TrafficStreamHub hub;
+    private final StreamProperties properties;
+
+    public TrafficWebSocketHandler(TrafficStreamHub hub, BizProperties bizProperties) {
+        this.hub = hub;
+        this.properties = bizProperties.getStream();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        var params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        var name = params.getFirst("name");
+        var interval = params.getFirst("interval");
+        if (name == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("缺少场景名称"));
+            return;
+        }
+        name = UriUtils.decode(name, StandardCharsets.UTF_8);
+
+        long intervalMillis;
+        try {
+            intervalMillis = hub.intervalMillis(interval == null ? null : Long.valueOf(interval));
+            hub.reserve(name);
+        } catch (RuntimeException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+            return;
+        }
+
+        var decorated = new ConcurrentWebSocketSessionDecorator(session,
+                (int) properties.getSendTimeout().toMillis(), properties.getWsBufferSizeLimit());
+        var subscriber = new WebSocketTrafficSubscriber(name, intervalMillis, decorated);
+        session.getAttributes().put(SUBSCRIBER, subscriber);
+        hub.subscribe(subscriber);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        if (session.getAttributes().remove(SUBSCRIBER) instanceof WebSocketTrafficSubscriber subscriber) {
+            hub.unsubscribe(subscriber);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("WebSocket 会话[{}]传输异常: {}", session.getId(), exception.getMessage());
+    }
+}
@@ -0,0 +1,52 @@
+package com.lewin.luxanaipark.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+
+/**
+ * WebSocket 订阅者, 消息格式为 {"type":"snapshot|delta","data":{...}}
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+public class WebSocketTrafficSubscriber extends TrafficSubscriber {
+
+    private final WebSocketSession session;
+
+    /**
+     * @param session 已由 {@link org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator} 包装的会话
+     */
+    public WebSocketTrafficSubscriber(String sceneName, long intervalMillis, WebSocketSession session) {
+        super(sceneName, intervalMillis);
+        this.session = session;
+    }
+
+    public WebSocketSession session() {
+        return session;
+    }
+
+    @Override
+    protected void send(String type, long version, String json) throws IOException {
+        session.sendMessage(new TextMessage("{\"type\":\"" + type + "\",\"data\":" + json + "}"));
+    }
+
+    @Override
+    protected void heartbeat() throws IOException {
+        session.sendMessage(new PingMessage());
+    }
+
+    @Override
+    protected void close() {
+        try {
+            session.close(CloseStatus.GOING_AWAY);
+        } catch (IOException e) {
+            log.debug("关闭 WebSocket 会话失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个相机的客流计数器.
+ * <p>
+ * 进、出计数打包在同一个 {@link AtomicLong} 中(高 32 位为进, 低 32 位为出), 写入无锁, 读取时总能得到同一时刻的一对数据.
+ * 计数真正发生变化时递增序号并通知 {@link TrafficCoalescer}, 重复上报的相同数据不会触发下游处理.
+ * 同一相机配置在多个场景中时共用一个计数器, {@link #sceneNames()} 为其所属的全部场景.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public final class CameraCounter {
+
+    /** 不可变列表, 仅由 {@link TrafficRegistry} 在锁内替换 */
+    private volatile List<String> sceneNames;
+    private final CameraInfo cameraInfo;
+    private final String key;
+    private final AtomicLong packed = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final TrafficCoalescer coalescer;
+
+    CameraCounter(String sceneName, CameraInfo cameraInfo, TrafficCoalescer coalescer) {
+        this.sceneNames = List.of(sceneName);
+        this.cameraInfo = cameraInfo;
+        this.key = cameraInfo.key();
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * @return 相机所属的场景, 按注册顺序排列
+     */
+    public List<String> sceneNames() {
+        return sceneNames;
+    }
+
+    /**
+     * @return 场景是否为新增
+     */
+    boolean addScene(String sceneName) {
+        if (sceneNames.contains(sceneName)) {
+            return false;
+        }
+        var list = new ArrayList<>(sceneNames);
+        list.add(sceneName);
+        sceneNames = List.copyOf(list);
+        return true;
+    }
+
+    public CameraInfo cameraInfo() {
+        return cameraInfo;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public CameraTypeEnum type() {
+        return cameraInfo.getType();
+    }
+
+    public int in() {
+        return in(packed.get());
+    }
+
+    public int out() {
+        return out(packed.get());
+    }
+
+    /**
+     * @return 打包后的计数, 使用 {@link #in(long)}, {@link #out(long)} 拆解
+     */
+    public long packed() {
+        return packed.get();
+    }
+
+    /**
+     * 更新序号, 先于计数读取时可保证计数不旧于该序号
+     */
+    public long sequence() {
+        return sequence.get();
+    }
+
+    /**
+     * @return 计数是否发生变化
+     */
+    public boolean set(int in, int out) {
+        var now = pack(in, out);
+        if (packed.getAndSet(now) != now) {
+            changed();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 更新计数, 若进、出均小于当前值则视为设备周期数据并忽略.
+     *
+     * @return 是否更新成功
+     */
+    public boolean advance(int in, int out) {
+        for (; ; ) {
+            long pre = packed.get();
+            if (in < in(pre) && out < out(pre)) {
+                return false;
+            }
+            var now = pack(in, out);
+            if (packed.compareAndSet(pre, now)) {
+                if (pre != now) {
+                    changed();
+                }
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        set(0, 0);
+    }
+
+    /**
+     * 写入从持久化日志恢复的计数, 不通知 {@link TrafficCoalescer}.
+     * 仅在启动时调用, 此时监听器尚未创建, 会在创建时读取恢复后的计数作为初始值.
+     */
+    public void restore(int in, int out) {
+        packed.set(pack(in, out));
+        sequence.incrementAndGet();
+    }
+
+    private void changed() {
+        sequence.incrementAndGet();
+        coalescer.offer(this);
+    }
+
+    boolean markPending() {
+        return pending.compareAndSet(false, true);
+    }
+
+    void clearPending() {
+        pending.set(false);
+    }
+
+    public static long pack(int in, int out) {
+        return ((long) in << 32) | (out & 0xFFFFFFFFL);
+    }
+
+    public static int in(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    public static int out(long packed) {
+        return (int) packed;
+    }
+
+    @Override
+    public String toString() {
+        long p = packed.get();
+        return "CameraCounter[%s-%s] 进[%d] 出[%d]".formatted(String.join(",", sceneNames), key, in(p), out(p));
+    }
+}
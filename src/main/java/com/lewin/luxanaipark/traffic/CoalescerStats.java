@@ -0,0 +1,15 @@
+package com.lewin.luxanaipark.traffic;
+
+/**
+ * 客流合并分发指标
+ *
+ * @param samples    累计计数变更次数
+ * @param coalesced  被合并(未单独分发)的变更次数
+ * @param dispatched 累计分发次数
+ * @param pending    当前待分发的相机数
+ * @param listeners  监听器数量
+ * @author Jun
+ * @since 1.0.0
+ */
+public record CoalescerStats(long samples, long coalesced, long dispatched, int pending, int listeners) {
+}
@@ -0,0 +1,61 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 场景查看记录.
+ * <p>
+ * 记录各场景最近一次被查询的时间, 供设备轮询判断场景是否正被查看; 场景由冷转热时唤醒该场景下已退避的轮询.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Component
+public class SceneReadTracker {
+
+    private final long hotWindowMillis;
+    private final Map<String, Long> lastReadMap = new ConcurrentHashMap<>();
+    private final Map<String, Set<Runnable>> wakeupMap = new ConcurrentHashMap<>();
+
+    public SceneReadTracker(BizProperties bizProperties) {
+        this.hotWindowMillis = bizProperties.getDeepcam().getPollHotWindow().toMillis();
+    }
+
+    /**
+     * 记录场景被查询
+     */
+    public void touch(String sceneName) {
+        var now = System.currentTimeMillis();
+        var pre = lastReadMap.put(sceneName, now);
+        if (pre == null || now - pre >= hotWindowMillis) {
+            var wakeups = wakeupMap.get(sceneName);
+            if (wakeups != null) {
+                wakeups.forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * @return 场景是否在查看窗口内被查询过
+     */
+    public boolean isHot(String sceneName) {
+        var lastRead = lastReadMap.get(sceneName);
+        return lastRead != null && System.currentTimeMillis() - lastRead < hotWindowMillis;
+    }
+
+    public void addWakeup(String sceneName, Runnable wakeup) {
+        wakeupMap.computeIfAbsent(sceneName, k -> ConcurrentHashMap.newKeySet()).add(wakeup);
+    }
+
+    public void removeWakeup(String sceneName, Runnable wakeup) {
+        wakeupMap.computeIfPresent(sceneName, (k, v) -> {
+            v.remove(wakeup);
+            return v.isEmpty() ? null : v;
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.occupancy.SceneOccupancy;
+
+/**
+ * 预序列化的场景客流响应
+ *
+ * @param version   对应的快照版本
+ * @param occupancy 序列化时的场景在场人数, 未启用时为 null
+ * @param etag      强 ETag(含双引号)
+ * @param body      {@code LewinResult<List<TrafficVO>>} 的 JSON 字节, 顶层附加 occupancy 字段, 只读
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneResponse(long version, SceneOccupancy occupancy, String etag, byte[] body) {
+
+    /**
+     * @param ifNoneMatch 请求头 If-None-Match, 可为空
+     * @return 客户端缓存是否仍然有效
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (var tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                // If-None-Match 使用弱比较
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lewin.commons.entity.LewinResult;
+import com.lewin.commons.exception.LewinException;
+import com.lewin.luxanaipark.occupancy.OccupancyEngine;
+import com.lewin.luxanaipark.occupancy.SceneOccupancy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 场景客流响应缓存.
+ * <p>
+ * 按场景缓存 {@link SceneSnapshot} 序列化后的字节, 响应体顶层附加场景在场人数 {@code occupancy}.
+ * 快照版本或在场人数变化时才重新序列化(在场人数只在变化时替换, 按引用比较). ETag 由进程启动时间、快照版本与序列化序号组成,
+ * 重启后版本重新计数也不会与旧 ETag 冲突.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Component
+public class SceneResponseCache {
+
+    private final Map<String, SceneResponse> cache = new ConcurrentHashMap<>();
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong revision = new AtomicLong();
+    private final SceneSnapshotStore sceneSnapshotStore;
+    private final OccupancyEngine occupancyEngine;
+    private final ObjectMapper objectMapper;
+
+    public SceneResponseCache(SceneSnapshotStore sceneSnapshotStore, OccupancyEngine occupancyEngine, ObjectMapper objectMapper) {
+        this.sceneSnapshotStore = sceneSnapshotStore;
+        this.occupancyEngine = occupancyEngine;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param sceneName 场景名称
+     * @return 当前快照对应的响应, 场景不存在或无相机时返回 null
+     */
+    public SceneResponse get(String sceneName) {
+        var snapshot = sceneSnapshotStore.get(sceneName);
+        if (snapshot == null || snapshot.cameras().isEmpty()) {
+            return null;
+        }
+
+        var cached = cache.get(sceneName);
+        if (cached != null && cached.version() == snapshot.version() && cached.occupancy() == occupancyEngine.get(sceneName)) {
+            return cached;
+        }
+        // 同一版本只序列化一次, 并发的读取方等待结果; 在锁内重新读取, 不会以旧数据覆盖新响应
+        return cache.compute(sceneName, (k, v) -> {
+            var latest = sceneSnapshotStore.get(sceneName);
+            var occupancy = occupancyEngine.get(sceneName);
+            if (v != null && v.version() >= latest.version() && v.occupancy() == occupancy) {
+                return v;
+            }
+            return serialize(latest, occupancy);
+        });
+    }
+
+    private SceneResponse serialize(SceneSnapshot snapshot, SceneOccupancy occupancy) {
+        try {
+            var node = objectMapper.valueToTree(LewinResult.ok(snapshot.cameras()));
+            if (node instanceof ObjectNode object) {
+                object.set("occupancy", objectMapper.valueToTree(occupancy));
+            }
+            var body = objectMapper.writeValueAsBytes(node);
+            var etag = "\"%s-%d-%d\"".formatted(epoch, snapshot.version(), revision.incrementAndGet());
+            return new SceneResponse(snapshot.version(), occupancy, etag, body);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new LewinException("场景[{}]响应序列化失败: {}", snapshot.name(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.entity.TrafficVO;
+
+import java.util.List;
+
+/**
+ * 场景快照, 不可变. 快照内所有相机的计数与在线状态来自同一时刻.
+ *
+ * @param name      场景名称
+ * @param version   快照版本, 每次变化递增
+ * @param updatedAt 最近一次变化时间戳(毫秒)
+ * @param cameras   场景下的相机(不可变列表)
+ * @author Jun
+ * @since 1.0.0
+ */
+public record SceneSnapshot(String name, long version, long updatedAt, List<TrafficVO> cameras) {
+}
@@ -0,0 +1,173 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.device.DeviceOnlineChangedEvent;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.entity.TrafficVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * 场景快照存储.
+ * <p>
+ * 每个场景的当前快照保存在一个 {@link AtomicReference} 中. 计数变更(经 {@link TrafficCoalescer} 合并)与上下线事件到达时,
+ * 复制场景的相机列表、替换变化的一项后以 CAS 发布新版本; 查询直接返回当前快照, 不加锁也不创建新对象.
+ * <p>
+ * 相机名称、位置、取流地址等静态字段在构建快照时一次性计算. {@link TrafficRegistry} 的相机发生增删时, 下一次查询会重建快照.
+ * 启动时在客流日志恢复计数之后创建, 初始快照即包含恢复的计数.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@DependsOn("trafficWal")
+public class SceneSnapshotStore implements TrafficListener {
+
+    private final Map<String, AtomicReference<SceneSnapshot>> scenes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> onlineMap = new ConcurrentHashMap<>();
+    private final TrafficRegistry trafficRegistry;
+    private final String streamUrlPrefix;
+    private volatile int registryGeneration = -1;
+
+    public SceneSnapshotStore(BizProperties bizProperties, TrafficRegistry trafficRegistry, TrafficCoalescer coalescer) {
+        this.trafficRegistry = trafficRegistry;
+        this.streamUrlPrefix = bizProperties.getStreamUrlPrefix();
+        for (var scene : bizProperties.getSceneList()) {
+            scenes.put(scene.getName(), new AtomicReference<>());
+        }
+        rebuildIfStale();
+        coalescer.addListener(this);
+    }
+
+    /**
+     * @param sceneName 场景名称
+     * @return 场景当前快照, 场景不存在时返回 null
+     */
+    public SceneSnapshot get(String sceneName) {
+        rebuildIfStale();
+        var ref = scenes.get(sceneName);
+        return ref == null ? null : ref.get();
+    }
+
+    @Override
+    public void onTraffic(CameraCounter counter, long packed, long sequence) {
+        var in = CameraCounter.in(packed);
+        var out = CameraCounter.out(packed);
+        update(counter, t -> t.withCount(in, out));
+    }
+
+    @EventListener
+    public void onOnlineChanged(DeviceOnlineChangedEvent event) {
+        onlineMap.put(event.key(), event.online());
+        var counter = trafficRegistry.byKey(event.key());
+        if (counter != null) {
+            update(counter, t -> t.withOnlineFlag(event.online()));
+        }
+    }
+
+    /**
+     * 在相机所属的每个场景中替换该相机并发布新版本, 相机不在快照中时忽略(下次重建时会读取最新值)
+     */
+    private void update(CameraCounter counter, UnaryOperator<TrafficVO> fn) {
+        for (var sceneName : counter.sceneNames()) {
+            update(sceneName, counter, fn);
+        }
+    }
+
+    private void update(String sceneName, CameraCounter counter, UnaryOperator<TrafficVO> fn) {
+        var ref = scenes.get(sceneName);
+        if (ref == null) {
+            return;
+        }
+        for (; ; ) {
+            var prev = ref.get();
+            if (prev == null) {
+                return;
+            }
+            var cameras = prev.cameras();
+            var idx = indexOf(cameras, counter.cameraInfo());
+            if (idx < 0) {
+                return;
+            }
+            var item = cameras.get(idx);
+            var changed = fn.apply(item);
+            if (changed.equals(item)) {
+                return;
+            }
+            var list = new ArrayList<>(cameras);
+            list.set(idx, changed);
+            var next = new SceneSnapshot(sceneName, prev.version() + 1, System.currentTimeMillis(), List.copyOf(list));
+            if (ref.compareAndSet(prev, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 相机增删(或海康设备重新绑定)后重建所有场景快照. 使用 CAS 发布, 与并发的增量更新冲突时重新读取计数.
+     */
+    private void rebuildIfStale() {
+        var generation = trafficRegistry.generation();
+        if (generation == registryGeneration) {
+            return;
+        }
+        synchronized (this) {
+            if (generation == registryGeneration) {
+                return;
+            }
+            for (var entry : scenes.entrySet()) {
+                var ref = entry.getValue();
+                for (; ; ) {
+                    var prev = ref.get();
+                    var next = build(entry.getKey(), prev == null ? 1 : prev.version() + 1);
+                    if (ref.compareAndSet(prev, next)) {
+                        break;
+                    }
+                }
+            }
+            registryGeneration = generation;
+        }
+    }
+
+    private SceneSnapshot build(String sceneName, long version) {
+        var counters = trafficRegistry.scene(sceneName);
+        var cameras = new ArrayList<TrafficVO>(counters == null ? 0 : counters.size());
+        if (counters != null) {
+            for (var counter : counters) {
+                var cameraInfo = counter.cameraInfo();
+                var packed = counter.packed();
+                cameras.add(new TrafficVO(
+                        CameraCounter.in(packed),
+                        CameraCounter.out(packed),
+                        cameraInfo.getName(),
+                        cameraInfo.getIp(),
+                        cameraInfo.getPort(),
+                        cameraInfo.getLocation(),
+                        onlineMap.getOrDefault(counter.key(), false),
+                        String.format("%s%s", streamUrlPrefix, cameraInfo.rtspUrl())
+                ));
+            }
+        }
+        return new SceneSnapshot(sceneName, version, System.currentTimeMillis(), List.copyOf(cameras));
+    }
+
+    private static int indexOf(List<TrafficVO> cameras, CameraInfo cameraInfo) {
+        for (int i = 0; i < cameras.size(); i++) {
+            var t = cameras.get(i);
+            if (t.port().equals(cameraInfo.getPort()) && t.ip().equals(cameraInfo.getIp())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,19 @@
+package com.lewin.luxanaipark.traffic;
+
+/**
+ * 客流计数变更监听器, 由 {@link TrafficCoalescer} 的分发线程回调.
+ * <p>
+ * 同一相机在分发前的多次更新会被合并, 监听器只会看到最新值; 实现方不应阻塞.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+public interface TrafficListener {
+
+    /**
+     * @param counter  发生变更的相机计数器
+     * @param packed   分发时刻的计数, 使用 {@link CameraCounter#in(long)}, {@link CameraCounter#out(long)} 拆解
+     * @param sequence 相机的更新序号, 相邻两次回调的差值减一即为被合并的更新次数
+     */
+    void onTraffic(CameraCounter counter, long packed, long sequence);
+}
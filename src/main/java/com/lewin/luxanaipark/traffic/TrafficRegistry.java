@@ -0,0 +1,176 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客流计数注册表.
+ * <p>
+ * 按场景、相机 key(ip:port)、序列号、海康登录用户 id 四个维度建立索引, 查询均为 O(1). 场景下的相机列表采用写时复制,
+ * 读取方无需加锁, 也不会出现 {@link java.util.ConcurrentModificationException}.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TrafficRegistry {
+
+    private final Map<String, List<CameraCounter>> sceneIndex = new ConcurrentHashMap<>();
+    private final Map<String, CameraCounter> keyIndex = new ConcurrentHashMap<>();
+    private final Map<String, CameraCounter> snIndex = new ConcurrentHashMap<>();
+    private final Map<Integer, CameraCounter> userIdIndex = new ConcurrentHashMap<>();
+
+    /** 相机增删时递增, 供外部缓存判断是否失效 */
+    private volatile int generation;
+    private final TrafficCoalescer coalescer;
+
+    public TrafficRegistry(BizProperties bizProperties, TrafficCoalescer coalescer) {
+        this.coalescer = coalescer;
+        for (var scene : bizProperties.getSceneList()) {
+            sceneIndex.putIfAbsent(scene.getName(), List.of());
+            if (ObjectUtils.isEmpty(scene.getCameraInfoList())) {
+                continue;
+            }
+            for (var cameraInfo : scene.getCameraInfoList()) {
+                register(scene.getName(), cameraInfo);
+            }
+        }
+    }
+
+    /**
+     * 注册相机, 相同 key 的相机只创建一个计数器; 同一相机配置在多个场景时, 计数器加入每个场景的相机列表
+     *
+     * @param sceneName  场景名称
+     * @param cameraInfo 相机信息
+     * @return 相机对应的计数器
+     */
+    public synchronized CameraCounter register(String sceneName, CameraInfo cameraInfo) {
+        var exist = keyIndex.get(cameraInfo.key());
+        if (exist != null) {
+            if (exist.addScene(sceneName)) {
+                addToScene(sceneName, exist);
+                generation++;
+                log.info("相机[{}]同时属于场景{}, 共用计数", exist.key(), exist.sceneNames());
+            }
+            return exist;
+        }
+
+        var counter = new CameraCounter(sceneName, cameraInfo, coalescer);
+        keyIndex.put(counter.key(), counter);
+        if (!ObjectUtils.isEmpty(cameraInfo.getSn())) {
+            snIndex.put(cameraInfo.getSn(), counter);
+        }
+        addToScene(sceneName, counter);
+        generation++;
+        return counter;
+    }
+
+    private void addToScene(String sceneName, CameraCounter counter) {
+        sceneIndex.compute(sceneName, (k, v) -> {
+            var list = v == null ? new ArrayList<CameraCounter>() : new ArrayList<>(v);
+            list.add(counter);
+            return List.copyOf(list);
+        });
+    }
+
+    /**
+     * 移除相机
+     *
+     * @param key 相机 key(ip:port)
+     * @return 被移除的计数器, 不存在时返回 null
+     */
+    public synchronized CameraCounter unregister(String key) {
+        var counter = keyIndex.remove(key);
+        if (counter == null) {
+            return null;
+        }
+
+        var sn = counter.cameraInfo().getSn();
+        if (!ObjectUtils.isEmpty(sn)) {
+            snIndex.remove(sn, counter);
+        }
+        userIdIndex.values().removeIf(t -> t == counter);
+        for (var sceneName : counter.sceneNames()) {
+            sceneIndex.computeIfPresent(sceneName, (k, v) -> v.stream().filter(t -> t != counter).toList());
+        }
+        generation++;
+        return counter;
+    }
+
+    /**
+     * 海康设备登录成功后绑定用户 id, 报警回调可直接通过用户 id 定位计数器, 无需解析序列号.
+     * <p>
+     * 若配置中未填写序列号, 使用设备返回的序列号补全序列号索引.
+     *
+     * @param userId 登录返回的用户 id
+     * @param key    相机 key(ip:port)
+     * @param sn     设备返回的序列号(已裁剪)
+     * @return 相机对应的计数器, 相机未注册时返回 null
+     */
+    public synchronized CameraCounter bindUserId(int userId, String key, String sn) {
+        var counter = keyIndex.get(key);
+        if (counter == null) {
+            return null;
+        }
+
+        userIdIndex.values().removeIf(t -> t == counter);
+        userIdIndex.put(userId, counter);
+        if (!ObjectUtils.isEmpty(sn) && snIndex.putIfAbsent(sn, counter) == null) {
+            var configSn = counter.cameraInfo().getSn();
+            if (!ObjectUtils.isEmpty(configSn)) {
+                log.warn("相机[{}]配置序列号[{}]与设备序列号[{}]不一致", key, configSn, sn);
+            }
+        }
+        generation++;
+        return counter;
+    }
+
+    public synchronized void unbindUserId(int userId) {
+        if (userIdIndex.remove(userId) != null) {
+            generation++;
+        }
+    }
+
+    /**
+     * @param sceneName 场景名称
+     * @return 场景下的相机计数器(不可变列表), 场景不存在时返回 null
+     */
+    public List<CameraCounter> scene(String sceneName) {
+        return sceneIndex.get(sceneName);
+    }
+
+    public CameraCounter byKey(String key) {
+        return keyIndex.get(key);
+    }
+
+    public CameraCounter bySn(String sn) {
+        return snIndex.get(sn);
+    }
+
+    public CameraCounter byUserId(int userId) {
+        return userIdIndex.get(userId);
+    }
+
+    public int generation() {
+        return generation;
+    }
+
+    public Collection<CameraCounter> all() {
+        return keyIndex.values();
+    }
+
+    public List<CameraCounter> ofType(CameraTypeEnum type) {
+        return keyIndex.values().stream().filter(t -> type == t.type()).toList();
+    }
+}
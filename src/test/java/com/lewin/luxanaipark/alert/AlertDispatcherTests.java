@@ -0,0 +1,169 @@
+package com.lewin.luxanaipark.alert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lewin.luxanaipark.config.AlertProperties;
+import com.lewin.luxanaipark.occupancy.CrowdLevel;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link AlertDispatcher} 与 {@link WebhookAlertPublisher} 测试, 使用本地 {@link HttpServer} 作为 webhook
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class AlertDispatcherTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<List<AlertEvent>> received = new LinkedBlockingQueue<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private HttpServer server;
+    private AlertDispatcher dispatcher;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/alert", exchange -> {
+            var body = exchange.getRequestBody().readAllBytes();
+            var status = failuresLeft.getAndDecrement() > 0 ? 500 : 204;
+            if (status == 204) {
+                received.add(objectMapper.readValue(body, AlertDispatcher.BATCH_TYPE));
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void eventsWithinLingerAreDeliveredAsOneBatch() throws Exception {
+        var properties = properties();
+        properties.setLinger(Duration.ofMillis(300));
+        dispatcher = dispatcher(properties);
+
+        var level = new CrowdLevelAlert("A", CrowdLevel.low, CrowdLevel.high, 80, 100, 1L);
+        var capacity = new CapacityExceededAlert("B", 120, 100, 2L);
+        assertTrue(dispatcher.offer(level));
+        assertTrue(dispatcher.offer(capacity));
+
+        var batch = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(List.of(level, capacity), batch);
+        await(() -> dispatcher.stats().delivered() == 2);
+        assertEquals(1, dispatcher.stats().batches());
+    }
+
+    @Test
+    void batchSizeSplitsBatches() throws Exception {
+        var properties = properties();
+        properties.setBatchSize(2);
+        properties.setLinger(Duration.ofMillis(500));
+        dispatcher = dispatcher(properties);
+
+        for (var i = 0; i < 5; i++) {
+            dispatcher.offer(new CapacityExceededAlert("A", 101 + i, 100, i));
+        }
+
+        var total = 0;
+        while (total < 5) {
+            var batch = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(batch);
+            assertTrue(batch.size() <= 2);
+            total += batch.size();
+        }
+        assertEquals(5, total);
+    }
+
+    @Test
+    void failedDeliveryIsRetried() throws Exception {
+        failuresLeft.set(2);
+        dispatcher = dispatcher(properties());
+
+        var event = new CapacityExceededAlert("A", 101, 100, 1L);
+        dispatcher.offer(event);
+
+        assertEquals(List.of(event), received.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, dispatcher.stats().retries());
+        assertEquals(0, dispatcher.stats().failed());
+    }
+
+    @Test
+    void retriesExhaustedCountsFailure() throws Exception {
+        failuresLeft.set(Integer.MAX_VALUE);
+        var properties = properties();
+        properties.setRetries(1);
+        dispatcher = dispatcher(properties);
+
+        dispatcher.offer(new CapacityExceededAlert("A", 101, 100, 1L));
+
+        await(() -> dispatcher.stats().failed() == 1);
+        assertEquals(1, dispatcher.stats().retries());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void fullQueueDropsWithoutBlocking() throws Exception {
+        var properties = properties();
+        properties.setQueueCapacity(1);
+        properties.setBatchSize(1);
+        properties.setMaxConcurrent(1);
+        var release = new CountDownLatch(1);
+        dispatcher = new AlertDispatcher(properties, batch -> release.await());
+
+        // 第一条占住唯一的推送并发, 第二条在凑批线程等待并发, 第三条留在队列
+        assertTrue(dispatcher.offer(new CapacityExceededAlert("A", 101, 100, 1L)));
+        await(() -> dispatcher.stats().inFlight() == 1);
+        assertTrue(dispatcher.offer(new CapacityExceededAlert("A", 101, 100, 2L)));
+        await(() -> dispatcher.stats().pending() == 0);
+        assertTrue(dispatcher.offer(new CapacityExceededAlert("A", 101, 100, 3L)));
+
+        assertFalse(dispatcher.offer(new CapacityExceededAlert("A", 101, 100, 4L)));
+        assertEquals(1, dispatcher.stats().dropped());
+
+        release.countDown();
+        await(() -> dispatcher.stats().delivered() == 3);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待超时");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private AlertProperties properties() {
+        var properties = new AlertProperties();
+        properties.setLinger(Duration.ofMillis(50));
+        properties.setRetryDelay(Duration.ofMillis(20));
+        properties.setRequestTimeout(Duration.ofSeconds(2));
+        return properties;
+    }
+
+    private AlertDispatcher dispatcher(AlertProperties properties) {
+        var uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/alert");
+        return new AlertDispatcher(properties, new WebhookAlertPublisher(uri, properties.getRequestTimeout(), objectMapper));
+    }
+}
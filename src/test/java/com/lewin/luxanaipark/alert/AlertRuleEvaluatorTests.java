@@ -0,0 +1,106 @@
+package com.lewin.luxanaipark.alert;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.occupancy.CrowdLevel;
+import com.lewin.luxanaipark.occupancy.OccupancyEngine;
+import com.lewin.luxanaipark.occupancy.SceneOccupancy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link AlertRuleEvaluator} 超容量告警滞回测试: 容量 100, 滞回比例 0.1, 人数低于 90 后才会再次告警
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class AlertRuleEvaluatorTests {
+
+    private static final String SCENE = "A";
+    private static final int CAPACITY = 100;
+
+    private final BizProperties bizProperties = new BizProperties();
+    private final OccupancyEngine occupancyEngine = mock(OccupancyEngine.class);
+    private final AlertDispatcher dispatcher = mock(AlertDispatcher.class);
+    private SceneOccupancy last;
+
+    @BeforeEach
+    void setUp() {
+        bizProperties.getAlert().setCapacityHysteresisRatio(0.1);
+        when(dispatcher.offer(any())).thenReturn(true);
+    }
+
+    @Test
+    void capacityExceededFiresOnceUntilBelowHysteresis() {
+        var evaluator = evaluator(List.of());
+        last = occupancy(80);
+
+        step(evaluator, 100);
+        step(evaluator, 101);
+        step(evaluator, 120);
+        // 回落到容量以下但未低于 90, 再次超容量时不告警
+        step(evaluator, 95);
+        step(evaluator, 105);
+        step(evaluator, 89);
+        step(evaluator, 102);
+
+        assertEquals(List.of(101L, 102L), exceeded());
+    }
+
+    @Test
+    void sceneAlreadyOverCapacityAtStartupDoesNotFireAgain() {
+        last = occupancy(110);
+        var evaluator = evaluator(List.of(last));
+
+        step(evaluator, 115);
+        step(evaluator, 80);
+        step(evaluator, 105);
+
+        assertEquals(List.of(105L), exceeded());
+    }
+
+    @Test
+    void crowdLevelChangeFiresLevelAlert() {
+        var evaluator = evaluator(List.of());
+        last = occupancy(50);
+
+        evaluator.onOccupancy(last, new SceneOccupancy(SCENE, 60, 0, 60, CAPACITY, CrowdLevel.high, 2L));
+
+        var captor = ArgumentCaptor.forClass(AlertEvent.class);
+        verify(dispatcher).offer(captor.capture());
+        assertEquals(new CrowdLevelAlert(SCENE, CrowdLevel.idle, CrowdLevel.high, 60, CAPACITY, 2L), captor.getValue());
+    }
+
+    private AlertRuleEvaluator evaluator(List<SceneOccupancy> initial) {
+        when(occupancyEngine.all()).thenReturn(initial);
+        var evaluator = new AlertRuleEvaluator(bizProperties, occupancyEngine, dispatcher);
+        verify(occupancyEngine).addListener(evaluator);
+        return evaluator;
+    }
+
+    /**
+     * 进入数为在场人数, 离开数为 0, 拥挤程度不变
+     */
+    private void step(AlertRuleEvaluator evaluator, long occupancy) {
+        var current = occupancy(occupancy);
+        evaluator.onOccupancy(last, current);
+        last = current;
+    }
+
+    private static SceneOccupancy occupancy(long raw) {
+        return new SceneOccupancy(SCENE, raw, 0, Math.min(raw, CAPACITY), CAPACITY, CrowdLevel.idle, raw);
+    }
+
+    private List<Long> exceeded() {
+        var captor = ArgumentCaptor.forClass(AlertEvent.class);
+        verify(dispatcher, atLeast(0)).offer(captor.capture());
+        return captor.getAllValues().stream()
+                .map(e -> assertInstanceOf(CapacityExceededAlert.class, e).occupancy())
+                .toList();
+    }
+}
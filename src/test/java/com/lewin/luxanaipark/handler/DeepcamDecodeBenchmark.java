@@ -0,0 +1,95 @@
+package com.lewin.luxanaipark.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 神目客流响应解码开销对比:
+ * <ul>
+ *     <li>tree: 原实现, 报文转 String 后构建 JsonNode 树, 再 treeToValue 绑定计数对象</li>
+ *     <li>streaming: {@link DeepcamResponseDecoder} 直接从 ByteBuf 流式读取</li>
+ * </ul>
+ * 运行 main 方法, 附带 gc profiler 输出每次操作的分配字节数.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepcamDecodeBenchmark {
+
+    private static final String FRAME = """
+            {"action":"get_person_count","ret":{"in":12345,"out":6789}}""";
+
+    @Param({"heap", "direct"})
+    public String buffer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DeepcamResponse response = new DeepcamResponse();
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        var bytes = FRAME.getBytes(StandardCharsets.UTF_8);
+        frame = "heap".equals(buffer) ? Unpooled.buffer(bytes.length) : Unpooled.directBuffer(bytes.length);
+        frame.writeBytes(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public void tree(Blackhole blackhole) throws IOException {
+        var json = objectMapper.readTree(frame.toString(StandardCharsets.UTF_8));
+        var action = Optional.of(json)
+                .map(t -> t.get("action"))
+                .map(JsonNode::asText)
+                .orElse(null);
+        var count = objectMapper.treeToValue(json.get("ret"), Count.class);
+        blackhole.consume(action);
+        blackhole.consume(count.in);
+        blackhole.consume(count.out);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        DeepcamResponseDecoder.decode(frame, response);
+        blackhole.consume(response.action);
+        blackhole.consume(response.in);
+        blackhole.consume(response.out);
+    }
+
+    /**
+     * 原 Traffic 实体的等价结构
+     */
+    public static class Count {
+        public Integer in;
+        public Integer out;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DeepcamDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.lewin.luxanaipark.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link DeepcamResponseDecoder} 测试
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class DeepcamResponseDecoderTests {
+
+    private final DeepcamResponse response = new DeepcamResponse();
+
+    @Test
+    void decodesCountInAnyFieldOrder() throws Exception {
+        assertTrue(decode("""
+                {"ret":{"out":5,"extra":[1,{"a":2}],"in":12},"action":"get_person_count"}"""));
+
+        assertEquals(DeepcamAction.GET_PERSON_COUNT, response.action);
+        assertTrue(response.hasCount);
+        assertEquals(12, response.in);
+        assertEquals(5, response.out);
+    }
+
+    @Test
+    void acceptsQuotedAndFractionalCounts() throws Exception {
+        assertTrue(decode("""
+                {"action":"get_person_count","ret":{"in":" 12 ","out":7.9}}"""));
+
+        assertTrue(response.hasCount);
+        assertEquals(12, response.in);
+        assertEquals(7, response.out);
+    }
+
+    @Test
+    void rejectsNonNumericCounts() throws Exception {
+        for (var ret : new String[]{"{\"in\":\"12a\",\"out\":1}", "{\"in\":null,\"out\":1}",
+                "{\"in\":\"99999999999\",\"out\":1}", "{\"in\":{\"v\":1},\"out\":1}", "{\"out\":1}"}) {
+            assertTrue(decode("{\"action\":\"get_person_count\",\"ret\":" + ret + "}"));
+            assertFalse(response.hasCount, ret);
+        }
+    }
+
+    @Test
+    void decodesStringRetFromDirectBuffer() throws Exception {
+        var buf = Unpooled.directBuffer();
+        buf.writeCharSequence("{\"action\":\"login\",\"ret\":\"login successfully\"}", StandardCharsets.UTF_8);
+        try {
+            assertTrue(DeepcamResponseDecoder.decode(buf, response));
+            assertEquals(DeepcamAction.LOGIN, response.action);
+            assertEquals("login successfully", response.ret);
+            assertEquals(0, buf.readerIndex());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void unknownActionAndMissingAction() throws Exception {
+        assertTrue(decode("{\"action\":\"reboot\"}"));
+        assertEquals(DeepcamAction.UNKNOWN, response.action);
+
+        assertFalse(decode("{\"ret\":\"ok\"}"));
+        assertFalse(decode("[1,2]"));
+    }
+
+    private boolean decode(String json) throws Exception {
+        ByteBuf buf = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+        try {
+            return DeepcamResponseDecoder.decode(buf, response);
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.lewin.luxanaipark.isapi;
+
+import com.lewin.luxanaipark.config.IsapiProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link IsapiClient} 测试, 使用不依赖 SDK 动态库的 {@link IsapiTransport} 模拟 {@code NET_DVR_STDXMLConfig}
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class IsapiClientTests {
+
+    private static final String STATUS_OK = """
+            <ResponseStatus><requestURL>/ISAPI/x</requestURL><statusCode>1</statusCode><statusString>OK</statusString></ResponseStatus>""";
+
+    private final List<String> requests = new ArrayList<>();
+    private final AtomicInteger opened = new AtomicInteger();
+
+    @Test
+    void putWritesUrlAndBodyAndParsesStatus() {
+        var client = client(new IsapiProperties(), request -> new Reply("", STATUS_OK));
+
+        var response = client.put(7, "/ISAPI/System/Video/inputs/channels/1/counting/resetCount", "<a/>");
+
+        assertTrue(response.isOk());
+        assertEquals(IsapiResponse.STATUS_OK, response.statusCode());
+        assertEquals(List.of("7 PUT /ISAPI/System/Video/inputs/channels/1/counting/resetCount <a/> 0"), requests);
+    }
+
+    @Test
+    void getReturnsBodyWithoutStatus() {
+        var client = client(new IsapiProperties(), request -> new Reply("<DeviceInfo/>", ""));
+
+        var response = client.get(1, "/ISAPI/System/deviceInfo");
+
+        assertTrue(response.isOk());
+        assertEquals("<DeviceInfo/>", response.body());
+        assertEquals(-1, response.statusCode());
+    }
+
+    @Test
+    void sdkFailureReportsLastError() {
+        var client = client(new IsapiProperties(), request -> null);
+
+        var response = client.get(1, "/ISAPI/System/deviceInfo");
+
+        assertFalse(response.isOk());
+        assertEquals(23, response.sdkError());
+    }
+
+    @Test
+    void buffersArePooledAndBounded() throws Exception {
+        var properties = new IsapiProperties();
+        properties.setPoolSize(2);
+        var client = client(properties, request -> {
+            sleep();
+            return new Reply("", STATUS_OK);
+        });
+
+        var executor = Executors.newFixedThreadPool(8);
+        var latch = new CountDownLatch(32);
+        var ok = new AtomicInteger();
+        for (int i = 0; i < 32; i++) {
+            executor.execute(() -> {
+                if (client.put(1, "/ISAPI/x", null).isOk()) {
+                    ok.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(32, ok.get());
+        assertEquals(2, opened.get());
+        assertEquals(2, client.allocated());
+        client.destroy();
+        assertEquals(0, client.allocated());
+        assertEquals(0, opened.get());
+    }
+
+    private IsapiClient client(IsapiProperties properties, Device device) {
+        IsapiTransport transport = (outBufferSize, statusBufferSize) -> {
+            opened.incrementAndGet();
+            return new FakeExchange(device);
+        };
+        return new IsapiClient(transport, properties);
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 模拟设备, 返回 null 表示 SDK 调用失败
+     */
+    @FunctionalInterface
+    private interface Device {
+        Reply handle(String request);
+    }
+
+    private record Reply(String body, String status) {
+    }
+
+    private final class FakeExchange implements IsapiTransport.Exchange {
+
+        private final Device device;
+        private Reply reply;
+        private boolean inUse;
+
+        private FakeExchange(Device device) {
+            this.device = device;
+        }
+
+        @Override
+        public boolean call(int userId, byte[] url, byte[] body, int recvTimeoutMs) {
+            assertFalse(inUse, "缓冲区被并发使用");
+            inUse = true;
+            try {
+                var request = userId + " " + new String(url, StandardCharsets.UTF_8);
+                if (body != null) {
+                    request += " " + new String(body, StandardCharsets.UTF_8);
+                }
+                synchronized (requests) {
+                    requests.add(request + " " + recvTimeoutMs);
+                }
+                reply = device.handle(request);
+                return reply != null;
+            } finally {
+                inUse = false;
+            }
+        }
+
+        @Override
+        public int lastError() {
+            return 23;
+        }
+
+        @Override
+        public byte[] response() {
+            return reply.body().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String status() {
+            return reply.status();
+        }
+
+        @Override
+        public void close() {
+            opened.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.lewin.luxanaipark.jna;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.entity.Scene;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import com.lewin.luxanaipark.utils.CommonUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客流报警定位计数器的开销对比:
+ * <ul>
+ *     <li>scan: 最初的实现, 每条报警裁剪序列号后遍历全部相机</li>
+ *     <li>trimThenLookup: 裁剪序列号字符串后查序列号索引</li>
+ *     <li>byUserId / bySerialCache: {@link AlarmDeviceResolver} 的两条路径</li>
+ * </ul>
+ * 运行 main 方法, 附带 gc profiler 输出每次操作的分配字节数.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmResolveBenchmark {
+
+    @Param({"64", "1024"})
+    public int cameras;
+
+    private TrafficCoalescer coalescer;
+    private TrafficRegistry registry;
+    private AlarmDeviceResolver resolver;
+    private byte[][] serials;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        var cameraInfoList = new ArrayList<CameraInfo>(cameras);
+        for (var i = 0; i < cameras; i++) {
+            var cameraInfo = new CameraInfo();
+            cameraInfo.setIp("10.0.%d.%d".formatted(i / 250, i % 250 + 1));
+            cameraInfo.setPort(8000);
+            cameraInfo.setSn("%09d".formatted(100_000_000 + i));
+            cameraInfo.setType(CameraTypeEnum.hik);
+            cameraInfoList.add(cameraInfo);
+        }
+        var scene = new Scene();
+        scene.setName("bench");
+        scene.setCameraInfoList(cameraInfoList);
+        var bizProperties = new BizProperties();
+        bizProperties.setSceneList(List.of(scene));
+
+        coalescer = new TrafficCoalescer();
+        registry = new TrafficRegistry(bizProperties, coalescer);
+        resolver = new AlarmDeviceResolver(registry);
+        serials = new byte[cameras][];
+        for (var i = 0; i < cameras; i++) {
+            var cameraInfo = cameraInfoList.get(i);
+            var raw = ("DS-2XM6810FCWD20230101CCWR" + cameraInfo.getSn()).getBytes(StandardCharsets.US_ASCII);
+            serials[i] = new byte[48];
+            System.arraycopy(raw, 0, serials[i], 0, raw.length);
+            registry.bindUserId(i, cameraInfo.key(), cameraInfo.getSn());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        coalescer.destroy();
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) % cameras;
+    }
+
+    @Benchmark
+    public CameraCounter scan() {
+        var sn = CommonUtils.trimSerialNumber(serials[next()]);
+        return registry.all().stream()
+                .filter(t -> sn.equals(t.cameraInfo().getSn()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Benchmark
+    public CameraCounter trimThenLookup() {
+        return registry.bySn(CommonUtils.trimSerialNumber(serials[next()]));
+    }
+
+    @Benchmark
+    public CameraCounter byUserId() {
+        var i = next();
+        return resolver.resolve(i, serials[i]);
+    }
+
+    @Benchmark
+    public CameraCounter bySerialCache() {
+        return resolver.resolve(-1, serials[next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AlarmResolveBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
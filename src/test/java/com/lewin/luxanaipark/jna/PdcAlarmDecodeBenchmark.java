@@ -0,0 +1,83 @@
+package com.lewin.luxanaipark.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客流报警缓冲区解码开销对比:
+ * <ul>
+ *     <li>structure: 原实现, 每条报警创建 {@link HCNetSDK.NET_DVR_PDC_ALRAM_INFO}, 经 byte[] 拷贝后反射读取</li>
+ *     <li>flyweight: {@link PdcAlarmReader} 按偏移量直接读取 native 内存</li>
+ * </ul>
+ * 创建 SDK 结构体会加载 hcnetsdk 动态库, 运行前需通过 {@code -Djna.library.path} 指定 SDK 目录.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdcAlarmDecodeBenchmark {
+
+    private Memory buffer;
+
+    @Setup
+    public void setup() {
+        var alarm = new HCNetSDK.NET_DVR_PDC_ALRAM_INFO();
+        alarm.dwSize = alarm.size();
+        alarm.byMode = 0;
+        alarm.dwEnterNum = 1234;
+        alarm.dwLeaveNum = 567;
+        alarm.write();
+        buffer = new Memory(alarm.size());
+        buffer.write(0, alarm.getPointer().getByteArray(0, alarm.size()), 0, alarm.size());
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.close();
+    }
+
+    @Benchmark
+    public void structure(Blackhole blackhole) {
+        var alarm = new HCNetSDK.NET_DVR_PDC_ALRAM_INFO();
+        pointer2Structure(buffer, alarm);
+        blackhole.consume(alarm.byMode);
+        blackhole.consume(alarm.dwEnterNum);
+        blackhole.consume(alarm.dwLeaveNum);
+    }
+
+    @Benchmark
+    public void flyweight(Blackhole blackhole) {
+        blackhole.consume(PdcAlarmReader.mode(buffer));
+        blackhole.consume(PdcAlarmReader.enterNum(buffer));
+        blackhole.consume(PdcAlarmReader.leaveNum(buffer));
+    }
+
+    private static void pointer2Structure(Pointer p, Structure struct) {
+        struct.write();
+        var size = struct.size();
+        var structPointer = struct.getPointer();
+        structPointer.write(0, p.getByteArray(0, size), 0, size);
+        struct.read();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PdcAlarmDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
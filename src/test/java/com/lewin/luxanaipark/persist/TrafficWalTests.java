@@ -0,0 +1,265 @@
+package com.lewin.luxanaipark.persist;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.entity.Scene;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TrafficWal} 恢复测试.
+ * <p>
+ * 每个用例写入日志后关闭, 再以同一目录重新创建 {@link TrafficWal} 模拟重启. 合并分发线程在创建后即停止,
+ * 由测试线程直接调用 {@link TrafficWal#onTraffic} 并等待写入线程处理完成, 每次调用对应一条记录.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class TrafficWalTests {
+
+    private static final int CAMERAS = 3;
+
+    @TempDir
+    Path dir;
+    private BizProperties bizProperties;
+    private final List<TrafficWal> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        var cameraInfoList = new ArrayList<CameraInfo>(CAMERAS);
+        for (int i = 0; i < CAMERAS; i++) {
+            var cameraInfo = new CameraInfo();
+            cameraInfo.setIp("10.0.0." + (i + 1));
+            cameraInfo.setPort(8000);
+            cameraInfo.setSn("SN" + i);
+            cameraInfo.setType(CameraTypeEnum.hik);
+            cameraInfoList.add(cameraInfo);
+        }
+        var scene = new Scene();
+        scene.setName("wal");
+        scene.setCameraInfoList(cameraInfoList);
+        bizProperties = new BizProperties();
+        bizProperties.setSceneList(List.of(scene));
+
+        var persistence = bizProperties.getPersistence();
+        persistence.setDir(dir.toString());
+        persistence.setFsync(FsyncPolicy.none);
+        persistence.setSnapshotInterval(Duration.ofDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(TrafficWal::destroy);
+    }
+
+    @Test
+    void snapshotAndTailAreRecovered() {
+        // 间隔为 0 时每条记录后都生成快照, 改为 1 天后还会再生成一次(下次快照时间已到), 之后的记录只写日志
+        bizProperties.getPersistence().setSnapshotInterval(Duration.ZERO);
+        var first = open();
+        first.write(0, 1, 0);
+        bizProperties.getPersistence().setSnapshotInterval(Duration.ofDays(1));
+        first.write(1, 2, 0);
+        first.write(0, 5, 2);
+        first.write(2, 3, 1);
+        first.wal.destroy();
+
+        var second = open();
+        var stats = second.wal.stats();
+        assertEquals(2, stats.snapshotLsn());
+        assertEquals(2, stats.replayed());
+        assertEquals(4, stats.lastLsn());
+        second.assertCounter(0, 5, 2);
+        second.assertCounter(1, 2, 0);
+        second.assertCounter(2, 3, 1);
+        // 恢复的计数不经过分发器
+        assertEquals(0, second.coalescer.stats().samples());
+    }
+
+    @Test
+    void tornTailRecordIsDiscarded() throws IOException {
+        tailRecordIsDiscarded(file -> {
+            // 打包计数被改写, CRC 校验失败
+            file.seek(2L * WalSegment.RECORD_SIZE + 24);
+            file.write(0x7f);
+        });
+    }
+
+    @Test
+    void zeroedTailRecordIsDiscarded() throws IOException {
+        tailRecordIsDiscarded(file -> {
+            file.seek(2L * WalSegment.RECORD_SIZE);
+            file.write(new byte[WalSegment.RECORD_SIZE]);
+        });
+    }
+
+    private void tailRecordIsDiscarded(Corruption corruption) throws IOException {
+        var first = open();
+        first.write(0, 1, 0);
+        first.write(0, 2, 0);
+        first.write(0, 3, 0);
+        first.wal.destroy();
+
+        var segments = files("wal-");
+        assertEquals(1, segments.size());
+        try (var file = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+            corruption.apply(file);
+        }
+
+        var second = open();
+        assertEquals(2, second.wal.stats().lastLsn());
+        second.assertCounter(0, 2, 0);
+
+        // 损坏的记录被覆盖, 继续写入后可正常恢复
+        second.write(0, 4, 0);
+        second.wal.destroy();
+        var third = open();
+        assertEquals(3, third.wal.stats().lastLsn());
+        third.assertCounter(0, 4, 0);
+    }
+
+    @Test
+    void replayContinuesAcrossSegmentRotation() throws IOException {
+        bizProperties.getPersistence().setSegmentSize(4 * WalSegment.RECORD_SIZE);
+        var first = open();
+        for (int i = 1; i <= 10; i++) {
+            first.write(i % CAMERAS, i, i / 2);
+        }
+        first.wal.destroy();
+        assertEquals(3, files("wal-").size());
+
+        var second = open();
+        var stats = second.wal.stats();
+        assertEquals(10, stats.replayed());
+        assertEquals(10, stats.lastLsn());
+        second.assertCounter(0, 9, 4);
+        second.assertCounter(1, 10, 5);
+        second.assertCounter(2, 8, 4);
+
+        // 恢复后在最后一段继续写入, 写满后再次轮转
+        for (int i = 11; i <= 14; i++) {
+            second.write(0, i, 0);
+        }
+        assertEquals(4, files("wal-").size());
+    }
+
+    @Test
+    void corruptNewestSnapshotFallsBackToOlder() throws IOException {
+        bizProperties.getPersistence().setSnapshotInterval(Duration.ZERO);
+        var first = open();
+        first.write(0, 1, 0);
+        first.write(1, 2, 0);
+        bizProperties.getPersistence().setSnapshotInterval(Duration.ofDays(1));
+        first.write(0, 3, 0);
+        first.write(2, 4, 0);
+        first.wal.destroy();
+
+        var snapshots = files("snapshot-");
+        assertEquals(2, snapshots.size());
+        var newest = snapshots.get(1);
+        var bytes = Files.readAllBytes(newest);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(newest, bytes);
+
+        var second = open();
+        var stats = second.wal.stats();
+        assertEquals(2, stats.snapshotLsn());
+        assertEquals(2, stats.replayed());
+        second.assertCounter(0, 3, 0);
+        second.assertCounter(1, 2, 0);
+        second.assertCounter(2, 4, 0);
+    }
+
+    @Test
+    void segmentsCoveredBySnapshotAreRetired() throws IOException {
+        var persistence = bizProperties.getPersistence();
+        persistence.setSegmentSize(4 * WalSegment.RECORD_SIZE);
+        persistence.setRetention(Duration.ZERO);
+        var first = open();
+        for (int i = 1; i <= 10; i++) {
+            first.write(i % CAMERAS, i, 0);
+        }
+        first.wal.destroy();
+
+        // 没有快照覆盖, 超过保留时长也不删除
+        var segments = files("wal-");
+        assertEquals(3, segments.size());
+        var old = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+        for (var segment : segments) {
+            Files.setLastModifiedTime(segment, old);
+        }
+
+        persistence.setSnapshotInterval(Duration.ZERO);
+        var second = open();
+        second.write(0, 11, 0);
+        assertEquals(11, second.wal.stats().snapshotLsn());
+        assertEquals(List.of(segments.get(2)), files("wal-"));
+        assertEquals(1, second.wal.stats().segments());
+        second.wal.destroy();
+
+        var third = open();
+        assertEquals(0, third.wal.stats().replayed());
+        third.assertCounter(0, 11, 0);
+        third.assertCounter(1, 10, 0);
+        third.assertCounter(2, 8, 0);
+    }
+
+    private Instance open() {
+        var coalescer = new TrafficCoalescer();
+        coalescer.destroy();
+        var registry = new TrafficRegistry(bizProperties, coalescer);
+        var wal = new TrafficWal(bizProperties, registry, coalescer);
+        opened.add(wal);
+        return new Instance(coalescer, registry, wal);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(p -> p.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Corruption {
+
+        void apply(RandomAccessFile file) throws IOException;
+    }
+
+    private record Instance(TrafficCoalescer coalescer, TrafficRegistry registry, TrafficWal wal) {
+
+        CameraCounter counter(int camera) {
+            return registry.byKey("10.0.0.%d:8000".formatted(camera + 1));
+        }
+
+        void write(int camera, int in, int out) {
+            var counter = counter(camera);
+            counter.set(in, out);
+            wal.onTraffic(counter, counter.packed(), counter.sequence());
+            wal.sync();
+        }
+
+        void assertCounter(int camera, int in, int out) {
+            var counter = counter(camera);
+            assertEquals(in, counter.in(), "相机[%d]进入数".formatted(camera));
+            assertEquals(out, counter.out(), "相机[%d]离开数".formatted(camera));
+        }
+    }
+}
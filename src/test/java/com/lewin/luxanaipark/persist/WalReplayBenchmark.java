@@ -0,0 +1,120 @@
+package com.lewin.luxanaipark.persist;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.entity.Scene;
+import com.lewin.luxanaipark.traffic.CameraCounter;
+import com.lewin.luxanaipark.traffic.TrafficCoalescer;
+import com.lewin.luxanaipark.traffic.TrafficRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 启动恢复耗时: 没有快照, 从头回放 {@code records} 条日志记录.
+ * <p>
+ * 准备阶段直接以默认段大小写入日志段, 每次测量新建 {@link TrafficWal} 完成一次恢复. 日志文件在页缓存中, 结果不包含冷读磁盘的耗时.
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WalReplayBenchmark {
+
+    @Param({"3000000"})
+    public int records;
+
+    @Param({"1024"})
+    public int cameras;
+
+    private Path dir;
+    private BizProperties bizProperties;
+    private TrafficWal wal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("wal-replay");
+        var cameraInfoList = new ArrayList<CameraInfo>(cameras);
+        for (int i = 0; i < cameras; i++) {
+            var cameraInfo = new CameraInfo();
+            cameraInfo.setIp("10.0.%d.%d".formatted(i / 250, i % 250 + 1));
+            cameraInfo.setPort(8000);
+            cameraInfo.setSn("SN" + i);
+            cameraInfo.setType(CameraTypeEnum.hik);
+            cameraInfoList.add(cameraInfo);
+        }
+        var scene = new Scene();
+        scene.setName("bench");
+        scene.setCameraInfoList(cameraInfoList);
+        bizProperties = new BizProperties();
+        bizProperties.setSceneList(List.of(scene));
+        var persistence = bizProperties.getPersistence();
+        persistence.setDir(dir.toString());
+        persistence.setFsync(FsyncPolicy.none);
+        persistence.setSnapshotInterval(Duration.ofDays(1));
+
+        var coalescer = new TrafficCoalescer();
+        coalescer.destroy();
+        var counters = new ArrayList<>(new TrafficRegistry(bizProperties, coalescer).all());
+        var segmentSize = persistence.getSegmentSize();
+        var now = System.currentTimeMillis();
+        var segment = WalSegment.open(TrafficWal.segmentPath(dir.toAbsolutePath(), 1), 1, segmentSize);
+        for (long lsn = 1; lsn <= records; lsn++) {
+            var i = (int) (lsn - 1);
+            var keyHash = TrafficWal.keyHash(counters.get(i % cameras).key());
+            var packed = CameraCounter.pack(i / cameras, i / cameras / 2);
+            if (!segment.append(lsn, now, keyHash, packed)) {
+                segment.close();
+                segment = WalSegment.open(TrafficWal.segmentPath(dir.toAbsolutePath(), lsn), lsn, segmentSize);
+                segment.append(lsn, now, keyHash, packed);
+            }
+        }
+        segment.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeWal() {
+        wal.destroy();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            for (var path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long replay() {
+        // 恢复的计数不经过分发器, 不会追加新记录, 每次测量回放的记录数相同
+        var coalescer = new TrafficCoalescer();
+        coalescer.destroy();
+        wal = new TrafficWal(bizProperties, new TrafficRegistry(bizProperties, coalescer), coalescer);
+        return wal.stats().replayed();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WalReplayBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
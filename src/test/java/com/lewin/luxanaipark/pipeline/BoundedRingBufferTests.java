@@ -0,0 +1,133 @@
+package com.lewin.luxanaipark.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link BoundedRingBuffer} 测试
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class BoundedRingBufferTests {
+
+    @Test
+    void concurrentProducersDeliverEveryEventInOrder() throws Exception {
+        var producers = 4;
+        var perProducer = 200_000;
+        var ring = new BoundedRingBuffer<long[]>(1024, BackpressurePolicy.BLOCK);
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            var id = p;
+            var t = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        assertEquals(BoundedRingBuffer.Offer.ACCEPTED, ring.offer(new long[]{id, i}, null));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+
+        var next = new long[producers];
+        var batch = new long[64][];
+        var nanos = new long[64];
+        var received = 0;
+        while (received < producers * perProducer) {
+            var n = ring.drainTo(batch, nanos, 5, TimeUnit.SECONDS);
+            assertTrue(n > 0, "消费者等待超时");
+            for (int k = 0; k < n; k++) {
+                var id = (int) batch[k][0];
+                assertEquals(next[id]++, batch[k][1], "生产者[%d]的事件乱序".formatted(id));
+            }
+            received += n;
+        }
+        for (var t : threads) {
+            t.join();
+        }
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void dropOldestKeepsNewestEvents() throws Exception {
+        var ring = new BoundedRingBuffer<Integer>(4, BackpressurePolicy.DROP_OLDEST);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(BoundedRingBuffer.Offer.ACCEPTED, ring.offer(i, null));
+        }
+        assertEquals(BoundedRingBuffer.Offer.DROPPED_OLDEST, ring.offer(4, null));
+        assertEquals(BoundedRingBuffer.Offer.DROPPED_OLDEST, ring.offer(5, null));
+
+        assertEquals(List.of(2, 3, 4, 5), drain(ring));
+    }
+
+    @Test
+    void coalesceReplacesPendingEventOnly() throws Exception {
+        var ring = new BoundedRingBuffer<String>(4, BackpressurePolicy.COALESCE);
+        assertEquals(BoundedRingBuffer.Offer.ACCEPTED, ring.offer("a1", "a"));
+        assertEquals(BoundedRingBuffer.Offer.ACCEPTED, ring.offer("b1", "b"));
+        assertEquals(BoundedRingBuffer.Offer.COALESCED, ring.offer("a2", "a"));
+        assertEquals(List.of("a2", "b1"), drain(ring));
+
+        // 已取出的事件不再被替换
+        assertEquals(BoundedRingBuffer.Offer.ACCEPTED, ring.offer("a3", "a"));
+        assertEquals(List.of("a3"), drain(ring));
+
+        // 队列满时丢弃最早的事件, 被丢弃事件的合并键随之失效
+        for (var key : List.of("c", "d", "e", "f")) {
+            ring.offer(key + "1", key);
+        }
+        assertEquals(BoundedRingBuffer.Offer.DROPPED_OLDEST, ring.offer("g1", "g"));
+        assertEquals(BoundedRingBuffer.Offer.DROPPED_OLDEST, ring.offer("c2", "c"));
+        assertEquals(List.of("e1", "f1", "g1", "c2"), drain(ring));
+    }
+
+    @Test
+    void consumerIsWokenByProducer() throws Exception {
+        var ring = new BoundedRingBuffer<Integer>(8, BackpressurePolicy.DROP_OLDEST);
+        var producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                ring.offer(1, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        var begin = System.nanoTime();
+        var n = ring.drainTo(new Integer[4], new long[4], 10, TimeUnit.SECONDS);
+        assertEquals(1, n);
+        assertTrue(System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(5));
+        producer.join();
+    }
+
+    @Test
+    void closedBufferRejectsAndDrainsRemaining() throws Exception {
+        var ring = new BoundedRingBuffer<Integer>(4, BackpressurePolicy.BLOCK);
+        ring.offer(1, null);
+        ring.close();
+        assertEquals(BoundedRingBuffer.Offer.CLOSED, ring.offer(2, null));
+        assertEquals(List.of(1), drain(ring));
+        assertEquals(0, ring.drainTo(new Integer[4], new long[4], 10, TimeUnit.SECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> drain(BoundedRingBuffer<E> ring) throws InterruptedException {
+        var out = (E[]) new Object[16];
+        var n = ring.drainTo(out, new long[16], 0, TimeUnit.MILLISECONDS);
+        return List.copyOf(Arrays.asList(out).subList(0, n));
+    }
+}
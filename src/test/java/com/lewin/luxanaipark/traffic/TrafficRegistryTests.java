@@ -0,0 +1,73 @@
+package com.lewin.luxanaipark.traffic;
+
+import com.lewin.luxanaipark.config.BizProperties;
+import com.lewin.luxanaipark.constants.CameraTypeEnum;
+import com.lewin.luxanaipark.entity.CameraInfo;
+import com.lewin.luxanaipark.entity.Scene;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TrafficRegistry} 测试: 同一相机配置在多个场景中时共用计数器, 并出现在每个场景的相机列表中
+ *
+ * @author Jun
+ * @since 1.0.0
+ */
+class TrafficRegistryTests {
+
+    private final TrafficCoalescer coalescer = new TrafficCoalescer();
+
+    @AfterEach
+    void tearDown() {
+        coalescer.destroy();
+    }
+
+    @Test
+    void cameraSharedByScenesIsListedInEach() {
+        var shared = camera("10.0.0.1", "SN1");
+        var registry = new TrafficRegistry(properties(
+                scene("gate", shared, camera("10.0.0.2", "SN2")),
+                scene("hall", shared)), coalescer);
+
+        var counter = registry.byKey(shared.key());
+        assertEquals(List.of("gate", "hall"), counter.sceneNames());
+        assertEquals(2, registry.scene("gate").size());
+        assertEquals(List.of(counter), registry.scene("hall"));
+        assertEquals(2, registry.all().size());
+
+        // 运行期间重复注册不会重复加入
+        var generation = registry.generation();
+        assertSame(counter, registry.register("hall", shared));
+        assertEquals(generation, registry.generation());
+
+        registry.unregister(shared.key());
+        assertEquals(1, registry.scene("gate").size());
+        assertTrue(registry.scene("hall").isEmpty());
+    }
+
+    private static BizProperties properties(Scene... scenes) {
+        var bizProperties = new BizProperties();
+        bizProperties.setSceneList(List.of(scenes));
+        return bizProperties;
+    }
+
+    private static Scene scene(String name, CameraInfo... cameras) {
+        var scene = new Scene();
+        scene.setName(name);
+        scene.setCameraInfoList(List.of(cameras));
+        return scene;
+    }
+
+    private static CameraInfo camera(String ip, String sn) {
+        var cameraInfo = new CameraInfo();
+        cameraInfo.setIp(ip);
+        cameraInfo.setPort(8000);
+        cameraInfo.setSn(sn);
+        cameraInfo.setType(CameraTypeEnum.hik);
+        return cameraInfo;
+    }
+}